@@ -0,0 +1,423 @@
+package com.progressoft.samples;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents a mutable collection of banknotes, typically the content of a vending machine's drawer.
+ * <p>
+ * Unlike {@link Money}, every operation updates the drawer in place, which allows processing sales without creating
+ * intermediate objects; {@link Money} snapshots are only created when explicitly requested through
+ * {@link CashDrawer#toMoney()}. A drawer holds the banknotes of a single {@link DenominationSet}, operations with
+ * Money instances of other sets are rejected.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class CashDrawer {
+    private final DenominationSet denominationSet;
+
+    private final int[] banknotes;
+
+    // Reusable buffer holding the banknotes of the latest dispensed change
+    private final int[] change;
+
+    // Reusable buffer holding the banknotes of the drawer while a batch of sales is planned
+    private final int[] planned;
+
+    // Optional index of the amounts the drawer can give exact change for, kept up to date by every operation
+    private ChangeIndex changeIndex;
+
+    /**
+     * Constructs a new, empty CashDrawer of the predefined denomination set ({@link DenominationSet#JOD}).
+     */
+    public CashDrawer() {
+        this(DenominationSet.JOD);
+    }
+
+    /**
+     * Constructs a new, empty CashDrawer.
+     *
+     * @param denominationSet The denomination set of the banknotes of the drawer
+     */
+    public CashDrawer(DenominationSet denominationSet) {
+        this.denominationSet = denominationSet;
+        this.banknotes = new int[denominationSet.size()];
+        this.change = new int[denominationSet.size()];
+        this.planned = new int[denominationSet.size()];
+    }
+
+    /**
+     * Constructs a new CashDrawer holding the banknotes of a Money instance, of the same denomination set.
+     *
+     * @param initial The initial banknotes of the drawer
+     */
+    public CashDrawer(Money initial) {
+        this(initial.denominationSet());
+        add(initial);
+    }
+
+    /**
+     * Fetches the denomination set of this drawer.
+     *
+     * @return The {@link DenominationSet} of the banknotes of this drawer
+     */
+    public DenominationSet denominationSet() {
+        return denominationSet;
+    }
+
+    /**
+     * Calculates the total amount within this drawer.
+     *
+     * @return the total amount as a double
+     */
+    public double amount() {
+        return amountInPiasters() / (double) denominationSet.unitsPerMajor();
+    }
+
+    /**
+     * Adds the banknotes of a Money instance to this drawer.
+     *
+     * @param money The banknotes to add
+     * @return This drawer
+     * @throws IllegalArgumentException If the Money instance belongs to another denomination set
+     */
+    public CashDrawer add(Money money) {
+        denominationSet.check(money);
+
+        for (int i = 0; i < banknotes.length; i++) {
+            banknotes[i] += money.count(i);
+        }
+
+        updateChangeIndex();
+
+        return this;
+    }
+
+    /**
+     * Adds the banknotes of multiple Money instances to this drawer.
+     *
+     * @param items The banknotes to add
+     * @return This drawer
+     */
+    public CashDrawer addAll(Money... items) {
+        for (Money item : items) {
+            add(item);
+        }
+
+        return this;
+    }
+
+    /**
+     * Adds banknotes to this drawer.
+     *
+     * @param counts The number of banknotes to add, indexed by denomination
+     */
+    void add(int[] counts) {
+        for (int i = 0; i < banknotes.length; i++) {
+            banknotes[i] += counts[i];
+        }
+
+        updateChangeIndex();
+    }
+
+    /**
+     * Removes the exact banknotes of a Money instance from this drawer.
+     *
+     * @param money The banknotes to remove
+     * @return This drawer
+     * @throws IllegalArgumentException If the drawer does not hold the banknotes to remove, in which case the drawer is
+     *                                  left unchanged, or if the Money instance belongs to another denomination set
+     */
+    public CashDrawer remove(Money money) {
+        denominationSet.check(money);
+
+        for (int i = 0; i < banknotes.length; i++) {
+            if (banknotes[i] < money.count(i)) {
+                throw new IllegalArgumentException("Could not perform removal; insufficient banknotes");
+            }
+        }
+
+        for (int i = 0; i < banknotes.length; i++) {
+            take(i, money.count(i));
+        }
+
+        updateChangeIndex();
+
+        return this;
+    }
+
+    /**
+     * Removes exact banknotes from this drawer, if it holds them.
+     *
+     * @param counts The number of banknotes to remove, indexed by denomination
+     * @return true if the banknotes were removed, otherwise false, in which case the drawer is left unchanged
+     */
+    boolean tryRemove(int[] counts) {
+        for (int i = 0; i < banknotes.length; i++) {
+            if (banknotes[i] < counts[i]) {
+                return false;
+            }
+        }
+
+        for (int i = 0; i < banknotes.length; i++) {
+            take(i, counts[i]);
+        }
+
+        updateChangeIndex();
+
+        return true;
+    }
+
+    /**
+     * Dispenses an amount of change from this drawer.
+     * <p>
+     * Similar to {@link Money#minus(Money)}, 'amount' is treated as a single decimal value rather than a collection of
+     * banknotes.
+     *
+     * @param amount The amount of change to dispense
+     * @return This drawer
+     * @throws InsufficientChangeException If there is insufficient change, in which case the drawer is left unchanged
+     * @throws IllegalArgumentException    If the amount belongs to another denomination set
+     */
+    public CashDrawer dispenseChange(Money amount) {
+        denominationSet.check(amount);
+
+        if (!dispenseChange(amount.amountInPiasters())) {
+            throw new InsufficientChangeException(
+                    denominationSet, banknotes, amount.amountInPiasters()
+            );
+        }
+
+        return this;
+    }
+
+    /**
+     * Dispenses an amount of change from this drawer, as a policy chooses it.
+     * <p>
+     * Behaves as {@link CashDrawer#dispenseChange(Money)}, except that among the exact combinations of the drawer's
+     * banknotes, the one the policy of the table weighs least is dispensed (see {@link DispensingTable}).
+     *
+     * @param amount The amount of change to dispense
+     * @param table  The precomputed change of the policy, of the same denomination set
+     * @return This drawer
+     * @throws InsufficientChangeException If there is insufficient change, in which case the drawer is left unchanged
+     * @throws IllegalArgumentException    If the amount or the table belongs to another denomination set
+     */
+    public CashDrawer dispenseChange(Money amount, DispensingTable table) {
+        denominationSet.check(amount);
+        table.denominationSet().check(amount);
+
+        if (!table.makeChange(banknotes, amount.amountInPiasters(), change)) {
+            throw new InsufficientChangeException(
+                    denominationSet, banknotes, amount.amountInPiasters()
+            );
+        }
+
+        for (int i = 0; i < banknotes.length; i++) {
+            take(i, change[i]);
+        }
+
+        updateChangeIndex();
+
+        return this;
+    }
+
+    /**
+     * Dispenses an amount of change from this drawer, if possible.
+     *
+     * @param piasters The amount of change to dispense in minor units
+     * @return true if the change was dispensed, otherwise false, in which case the drawer is left unchanged
+     */
+    boolean dispenseChange(long piasters) {
+        if (!denominationSet.changeMaker().makeChange(banknotes, piasters, change)) {
+            return false;
+        }
+
+        for (int i = 0; i < banknotes.length; i++) {
+            take(i, change[i]);
+        }
+
+        updateChangeIndex();
+
+        return true;
+    }
+
+    /**
+     * Processes a batch of sales, in order, as if each was processed on its own: the drawer takes the inserted
+     * banknotes, then gives the change as by {@link Money#minus(Money)}, or returns the inserted banknotes if the sale
+     * fails.
+     * <p>
+     * The change of the whole batch is planned in a single pass over a copy of the drawer's banknotes, each sale
+     * starting from the banknotes left by the previous ones, and the drawer is only updated once, with the outcome of
+     * every sale; hence, no {@link Money} instance is created for the intermediate drawers, and the drawer is left
+     * unchanged if the batch is rejected.
+     *
+     * @param sales The sales to process
+     * @return The {@link SaleOutcome} of each sale, in order
+     * @throws IllegalArgumentException If a sale belongs to another denomination set, in which case no sale is
+     *                                  processed
+     */
+    public List<SaleOutcome> processSales(List<Sale> sales) {
+        for (Sale sale : sales) {
+            denominationSet.check(sale.price());
+        }
+
+        ChangeMaker changeMaker = denominationSet.changeMaker();
+        List<SaleOutcome> outcomes = new ArrayList<>(sales.size());
+        System.arraycopy(banknotes, 0, planned, 0, banknotes.length);
+
+        for (Sale sale : sales) {
+            Money inserted = sale.inserted();
+            long amount = inserted.amountInPiasters() - sale.price().amountInPiasters();
+
+            if (amount < 0) {
+                outcomes.add(new SaleOutcome(sale, SaleOutcome.Status.INSUFFICIENT_CREDIT, inserted));
+                continue;
+            }
+
+            for (int i = 0; i < planned.length; i++) {
+                planned[i] += inserted.count(i);
+            }
+
+            if (changeMaker.makeChange(planned, amount, change)) {
+                for (int i = 0; i < planned.length; i++) {
+                    planned[i] -= change[i];
+                }
+
+                outcomes.add(new SaleOutcome(sale, SaleOutcome.Status.COMPLETED,
+                        Money.fromBanknotes(denominationSet, change)));
+            } else {
+                for (int i = 0; i < planned.length; i++) {
+                    planned[i] -= inserted.count(i);
+                }
+
+                outcomes.add(new SaleOutcome(sale, SaleOutcome.Status.INSUFFICIENT_CHANGE, inserted));
+            }
+        }
+
+        for (int i = 0; i < banknotes.length; i++) {
+            if (planned[i] < banknotes[i]) {
+                MoneyMetrics.recordWithdrawal(denominationSet, i, banknotes[i], planned[i]);
+            }
+
+            banknotes[i] = planned[i];
+        }
+
+        updateChangeIndex();
+
+        return outcomes;
+    }
+
+    /**
+     * Checks whether exact change can be given for an amount, without dispensing it.
+     * <p>
+     * The check takes constant time if the amount is covered by the index created through
+     * {@link CashDrawer#indexChange(Money)} and the index finds a way to give it, otherwise, the change is computed as
+     * in {@link CashDrawer#dispenseChange(Money)}; the index may miss the ways of an amount (see {@link ChangeIndex}),
+     * hence, its negative answers are confirmed rather than trusted.
+     *
+     * @param amount The amount of change
+     * @return true if a combination of the drawer's banknotes sums up to the amount, otherwise false
+     * @throws IllegalArgumentException If the amount belongs to another denomination set
+     */
+    public boolean canMakeChange(Money amount) {
+        denominationSet.check(amount);
+
+        return canMakeChange(amount.amountInPiasters());
+    }
+
+    /**
+     * Checks whether exact change can be given for an amount, without dispensing it.
+     *
+     * @param piasters The amount of change in minor units
+     * @return true if a combination of the drawer's banknotes sums up to the amount, otherwise false
+     */
+    boolean canMakeChange(long piasters) {
+        // The index never reports impossible change as possible, only the converse needs to be confirmed
+        if (changeIndex != null && changeIndex.covers(piasters) && changeIndex.canMakeChange(piasters)) {
+            return true;
+        }
+
+        return denominationSet.changeMaker().makeChange(banknotes, piasters, change);
+    }
+
+    /**
+     * Creates an index of the amounts this drawer can give exact change for, which is then maintained incrementally
+     * by every operation on the drawer (replacing any previously created index).
+     *
+     * @param maxAmount The largest amount to index, typically the largest change a sale could require
+     * @return The {@link ChangeIndex} attached to this drawer
+     * @throws IllegalArgumentException If the amount belongs to another denomination set
+     */
+    public ChangeIndex indexChange(Money maxAmount) {
+        denominationSet.check(maxAmount);
+
+        changeIndex = new ChangeIndex(denominationSet, maxAmount.amountInPiasters());
+        updateChangeIndex();
+
+        return changeIndex;
+    }
+
+    /**
+     * Takes banknotes of a denomination out of this drawer, which must hold them.
+     *
+     * @param index The denomination index within the denomination set of this drawer
+     * @param count The number of banknotes to take
+     */
+    private void take(int index, int count) {
+        if (count != 0) {
+            MoneyMetrics.recordWithdrawal(denominationSet, index, banknotes[index], banknotes[index] - count);
+            banknotes[index] -= count;
+        }
+    }
+
+    private void updateChangeIndex() {
+        if (changeIndex == null) {
+            return;
+        }
+
+        for (int i = 0; i < banknotes.length; i++) {
+            changeIndex.update(i, banknotes[i]);
+        }
+    }
+
+    /**
+     * Fetches the number of banknotes of a denomination.
+     *
+     * @param index The denomination index within the denomination set of this drawer
+     * @return The number of banknotes of the given denomination
+     */
+    int count(int index) {
+        return banknotes[index];
+    }
+
+    /**
+     * Calculates the exact total amount within this drawer.
+     *
+     * @return the total amount in piasters (in minor units of the denomination set, for other sets than JOD)
+     */
+    public long amountInPiasters() {
+        long[] denominations = denominationSet.denominations();
+        long sum = 0;
+
+        for (int i = 0; i < banknotes.length; i++) {
+            sum += denominations[i] * banknotes[i];
+        }
+
+        return sum;
+    }
+
+    /**
+     * Creates an immutable snapshot of this drawer.
+     *
+     * @return A new {@link Money} instance holding the current banknotes of this drawer
+     */
+    public Money toMoney() {
+        return Money.fromBanknotes(denominationSet, banknotes);
+    }
+
+    @Override
+    public String toString() {
+        return denominationSet.format(amountInPiasters());
+    }
+}
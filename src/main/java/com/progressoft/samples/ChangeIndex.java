@@ -0,0 +1,120 @@
+package com.progressoft.samples;
+
+import static java.lang.Math.min;
+
+/**
+ * Answers whether a drawer can give exact change for an amount in constant time, for every amount up to a given bound.
+ * <p>
+ * The index counts, for each amount, the number of ways (modulo a large prime) to pick banknotes out of the drawer that
+ * sum up to it; an amount can be given exactly if and only if that number is not zero. Unlike a plain set of reachable
+ * amounts, the counts can be updated incrementally in both directions: adding a banknote of value d adds the ways of
+ * each amount a - d to amount a, and removing it subtracts them back, both in O(bound) time.
+ * <p>
+ * Banknotes beyond the bound divided by their value can never be part of an indexed amount, hence, they are not
+ * counted, which caps the cost of large refills. Being modular, a non-zero number of ways can wrap to zero, in which
+ * case an amount that can be given exactly is reported as impossible (the converse cannot happen). The modulus
+ * (2^61 - 1) is fixed, hence, such a collision is not a matter of chance: the same banknotes and amount always give the
+ * same wrong answer, and callers that cannot tolerate it should confirm a negative answer through
+ * {@link Money#tryMinus(Money)}, as {@link CashDrawer#canMakeChange(Money)} does.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class ChangeIndex {
+    private static final long MODULUS = (1L << 61) - 1;
+
+    private final DenominationSet denominationSet;
+
+    private final long[] denominations;
+
+    private final int bound;
+
+    // The number of ways to pick each amount (in minor units) modulo MODULUS
+    private final long[] ways;
+
+    // The number of banknotes of each denomination accounted for in 'ways'
+    private final int[] indexed;
+
+    /**
+     * Constructs a new ChangeIndex of an empty drawer.
+     *
+     * @param denominationSet The denomination set of the banknotes of the drawer
+     * @param bound           The largest amount to index in minor units
+     * @throws IllegalArgumentException If bound is negative or too large to be indexed
+     */
+    ChangeIndex(DenominationSet denominationSet, long bound) {
+        if (bound < 0 || bound >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Argument bound must be a non-negative integer");
+        }
+
+        this.denominationSet = denominationSet;
+        this.denominations = denominationSet.denominations();
+        this.bound = (int) bound;
+        this.ways = new long[this.bound + 1];
+        this.ways[0] = 1;
+        this.indexed = new int[denominations.length];
+    }
+
+    /**
+     * Checks whether exact change can be given for an amount.
+     *
+     * @param amount The amount of change
+     * @return true if a combination of the drawer's banknotes sums up to the amount, otherwise false
+     * @throws IllegalArgumentException If the amount exceeds the bound of this index, or if it belongs to another
+     *                                  denomination set
+     */
+    public boolean canMakeChange(Money amount) {
+        denominationSet.check(amount);
+
+        return canMakeChange(amount.amountInPiasters());
+    }
+
+    /**
+     * Checks whether exact change can be given for an amount.
+     *
+     * @param piasters The amount of change in minor units
+     * @return true if a combination of the drawer's banknotes sums up to the amount, otherwise false
+     * @throws IllegalArgumentException If the amount exceeds the bound of this index
+     */
+    boolean canMakeChange(long piasters) {
+        if (!covers(piasters)) {
+            throw new IllegalArgumentException("Argument amount must not exceed the bound of the index");
+        }
+
+        return ways[(int) piasters] != 0;
+    }
+
+    /**
+     * Checks whether an amount is within the bound of this index.
+     *
+     * @param piasters The amount in minor units
+     * @return true if the amount is indexed, otherwise false
+     */
+    boolean covers(long piasters) {
+        return piasters >= 0 && piasters <= bound;
+    }
+
+    /**
+     * Updates the number of banknotes of a denomination held by the drawer.
+     *
+     * @param index The denomination index within the denomination set of the drawer
+     * @param count The new number of banknotes of the given denomination
+     */
+    void update(int index, int count) {
+        int denomination = (int) min(denominations[index], bound + 1L);
+        int target = Math.max(0, min(count, bound / denomination));
+
+        for (; indexed[index] < target; indexed[index]++) {
+            for (int a = bound; a >= denomination; a--) {
+                long sum = ways[a] + ways[a - denomination];
+                ways[a] = sum >= MODULUS ? sum - MODULUS : sum;
+            }
+        }
+
+        for (; indexed[index] > target; indexed[index]--) {
+            for (int a = denomination; a <= bound; a++) {
+                long difference = ways[a] - ways[a - denomination];
+                ways[a] = difference < 0 ? difference + MODULUS : difference;
+            }
+        }
+    }
+}
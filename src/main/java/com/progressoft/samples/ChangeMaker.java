@@ -0,0 +1,458 @@
+package com.progressoft.samples;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Computes exact change from a limited set of banknotes.
+ * <p>
+ * Change is first attempted greedily (starting from the largest banknote), which succeeds for the vast majority of
+ * requests in constant time. Only when the greedy attempt fails, a bounded dynamic program over the exact amounts (in
+ * units of the greatest common divisor of the denominations) is used, hence, a failure is only reported when no
+ * combination of the available banknotes sums up to the requested amount.
+ * <p>
+ * The program never spans more than a fixed multiple of the least common multiple of the denominations, whatever the
+ * amount; larger amounts are split into a bulk that the larger banknotes are known to cover and a residue that the
+ * program settles (see {@link ChangeMaker#largestReachable(int[], long, int[])}).
+ * <p>
+ * Instances are immutable and cached per denomination set, the dynamic program works on per-thread scratch buffers
+ * that are reused across calls, up to a bounded capacity so that a single large amount does not pin memory on every
+ * thread it ran on.
+ */
+final class ChangeMaker {
+    private static final ConcurrentMap<DenominationsKey, ChangeMaker> CACHE = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    // Marks an amount within 'Scratch.layer' as reachable without any banknote (i.e. the zero amount)
+    private static final byte BASE_LAYER = 1;
+
+    // The largest capacity of the per-thread buffers, larger programs work on buffers allocated for the call alone
+    private static final int MAX_REUSED_CAPACITY = 1 << 16;
+
+    // The largest span of a dynamic program, which bounds the least common multiple of the supported denominations
+    private static final int MAX_PROGRAM_CAPACITY = 1 << 22;
+
+    private final long[] denominations;
+
+    private final long[] scaledDenominations;
+
+    private final long gcd;
+
+    // The least common multiple of the denominations, scaled down by their greatest common divisor
+    private final long period;
+
+    // The largest (scaled) amount settled by a single dynamic program, larger amounts are split by the period first
+    private final int maxDirectAmount;
+
+    /**
+     * Constructs a new ChangeMaker and precomputes the tables for a set of denominations.
+     *
+     * @param denominations The banknote values sorted ascending, must be positive
+     */
+    private ChangeMaker(long[] denominations) {
+        if (denominations.length > Byte.MAX_VALUE - BASE_LAYER) {
+            throw new IllegalArgumentException("Argument denominations must not exceed " +
+                    (Byte.MAX_VALUE - BASE_LAYER) + " banknotes");
+        }
+
+        this.denominations = denominations.clone();
+
+        long divisor = 0;
+        for (long denomination : denominations) {
+            divisor = gcd(divisor, denomination);
+        }
+        this.gcd = max(divisor, 1);
+
+        this.scaledDenominations = new long[denominations.length];
+        long multiple = 1;
+        for (int i = 0; i < denominations.length; i++) {
+            this.scaledDenominations[i] = denominations[i] / gcd;
+
+            long factor = multiple / gcd(multiple, scaledDenominations[i]);
+            if (scaledDenominations[i] > MAX_PROGRAM_CAPACITY / denominations.length / factor) {
+                throw new IllegalArgumentException("Argument denominations must have a least common multiple of at " +
+                        "most " + MAX_PROGRAM_CAPACITY / denominations.length + " times their greatest common divisor");
+            }
+            multiple = factor * scaledDenominations[i];
+        }
+        this.period = multiple;
+        this.maxDirectAmount = (int) max(MAX_REUSED_CAPACITY, period * denominations.length);
+    }
+
+    /**
+     * Fetches the (cached) ChangeMaker of a set of denominations.
+     *
+     * @param denominations The banknote values sorted ascending, must be positive
+     * @return The {@link ChangeMaker} of the given denominations
+     */
+    static ChangeMaker forDenominations(long[] denominations) {
+        return CACHE.computeIfAbsent(new DenominationsKey(denominations), key -> new ChangeMaker(key.denominations));
+    }
+
+    /**
+     * Calculates the banknotes needed to give an exact amount of change.
+     *
+     * @param available The available banknote counts, indexed by denomination
+     * @param amount    The amount of change to give
+     * @param change    The array to write the banknote counts of the change to, indexed by denomination; its content is
+     *                  unspecified if no change could be made
+     * @return true if exact change could be made, otherwise false
+     */
+    boolean makeChange(int[] available, long amount, int[] change) {
+        if (amount < 0) {
+            return false;
+        }
+
+        // Attempt to greedily dispatch the change, starting from the largest banknote
+        long remainingAmount = amount;
+        for (int i = denominations.length - 1; i >= 0; i--) {
+            // Skip the division for the banknotes that cannot be part of the change
+            if (denominations[i] > remainingAmount || available[i] <= 0) {
+                change[i] = 0;
+                continue;
+            }
+
+            long count = min(remainingAmount / denominations[i], available[i]);
+
+            change[i] = (int) count;
+            remainingAmount -= denominations[i] * count;
+        }
+
+        if (remainingAmount == 0) {
+            return true;
+        }
+
+        if (amount % gcd != 0 || !mayMakeChange(available, amount)) {
+            return false;
+        }
+
+        long scaledAmount = amount / gcd;
+        if (scaledAmount > maxDirectAmount) {
+            return largestReachable(available, scaledAmount, change) == scaledAmount;
+        }
+
+        return makeExactChange(available, (int) scaledAmount, change);
+    }
+
+    /**
+     * Calculates how far an amount of change is from being possible to give.
+     *
+     * @param available The available banknote counts, indexed by denomination
+     * @param amount    The amount of change to give
+     * @return The difference between the amount and the largest amount not exceeding it that can be given exactly,
+     * zero if exact change can be made
+     */
+    long shortfall(int[] available, long amount) {
+        if (amount <= 0) {
+            return 0;
+        }
+
+        long total = 0;
+        for (int i = 0; i < denominations.length; i++) {
+            total += denominations[i] * max(available[i], 0);
+        }
+
+        // Nothing but the total can be given once the total is exceeded, which also bounds the dynamic program
+        if (total <= amount) {
+            return amount - total;
+        }
+
+        if (amount / gcd > maxDirectAmount) {
+            return amount - largestReachable(available, amount / gcd, null) * gcd;
+        }
+
+        int scaledAmount = (int) (amount / gcd);
+        byte[] layer = fillLayers(available, -1, scaledAmount, false);
+
+        int reachable = scaledAmount;
+        while (layer[reachable] == 0) {
+            reachable--;
+        }
+
+        return amount - reachable * gcd;
+    }
+
+    /**
+     * Checks whether the shortfall of an amount of change is computed on the per-thread buffers, that is, cheaply
+     * enough to be computed on every failure (e.g. for metrics).
+     *
+     * @param amount The amount of change to give
+     * @return true if {@link ChangeMaker#shortfall(int[], long)} takes a bounded amount of time and memory
+     */
+    boolean isShortfallBounded(long amount) {
+        return amount / gcd < MAX_REUSED_CAPACITY;
+    }
+
+    /**
+     * Rules out amounts of change that the available banknotes cannot give whatever their combination, namely amounts
+     * beyond their total or not a multiple of their greatest common divisor, which spares the dynamic program for them.
+     *
+     * @param available The available banknote counts, indexed by denomination
+     * @param amount    The amount of change to give
+     * @return false if exact change cannot be made, otherwise true (in which case it still may not be possible)
+     */
+    private boolean mayMakeChange(int[] available, long amount) {
+        long total = 0;
+        long divisor = 0;
+
+        for (int i = 0; i < denominations.length && denominations[i] <= amount; i++) {
+            if (available[i] > 0) {
+                total += denominations[i] * available[i];
+                divisor = gcd(divisor, denominations[i]);
+            }
+        }
+
+        return total >= amount && divisor != 0 && amount % divisor == 0;
+    }
+
+    /**
+     * Calculates the banknotes needed to give an exact amount of change by a bounded dynamic program.
+     *
+     * @param available The available banknote counts, indexed by denomination
+     * @param amount    The amount of change to give, scaled down by the greatest common divisor
+     * @param change    The array to write the banknote counts of the change to, indexed by denomination
+     * @return true if exact change could be made, otherwise false
+     */
+    private boolean makeExactChange(int[] available, int amount, int[] change) {
+        byte[] layer = fillLayers(available, -1, amount, true);
+
+        if (layer[amount] == 0) {
+            return false;
+        }
+
+        Arrays.fill(change, 0);
+        walkBack(layer, amount, change);
+
+        return true;
+    }
+
+    /**
+     * Finds the largest amount not exceeding a (large) amount that can be given exactly, without a dynamic program over
+     * the whole amount.
+     * <p>
+     * Trading banknotes of a smaller denomination worth the least common multiple (the period) for unused banknotes of
+     * a larger one keeps the amount while using fewer banknotes, hence, some combination giving any reachable amount
+     * cannot be traded further. In such a combination, taking the pivot as the largest denomination of which at least
+     * a period is left unused, every smaller denomination is used for less than a period, and every larger one has less
+     * than a period left unused. The amount is thus the bulk of the larger banknotes, plus any number of pivots, plus a
+     * residue of less than a period per denomination, which a program over these residues settles for every pivot.
+     *
+     * @param available The available banknote counts, indexed by denomination
+     * @param amount    The largest amount of interest, scaled down by the greatest common divisor
+     * @param change    The array to write the banknote counts giving the found amount to, indexed by denomination, or
+     *                  null if only the amount is of interest
+     * @return The largest amount that can be given exactly, scaled down by the greatest common divisor
+     */
+    private long largestReachable(int[] available, long amount, int[] change) {
+        int[] residues = new int[denominations.length];
+        for (int i = 0; i < denominations.length; i++) {
+            residues[i] = (int) min(max(available[i], 0), period / scaledDenominations[i] - 1);
+        }
+
+        long reachable = -1;
+        int reachablePivot = 0;
+        int reachableResidue = 0;
+
+        // A pivot of -1 stands for the combinations that leave less than a period unused of every denomination
+        for (int pivot = -1; pivot < denominations.length && reachable != amount; pivot++) {
+            if (pivot >= 0 && max(available[pivot], 0) * scaledDenominations[pivot] < period) {
+                continue;
+            }
+
+            long bulk = bulk(available, residues, pivot);
+            if (bulk > amount) {
+                continue;
+            }
+
+            int span = 0;
+            for (int i = 0; i < denominations.length; i++) {
+                span += i == pivot ? 0 : residues[i] * (int) scaledDenominations[i];
+            }
+            span = (int) min(span, amount - bulk);
+
+            byte[] layer = fillLayers(residues, pivot, span, false);
+            for (int residue = span; residue >= 0 && reachable != amount; residue--) {
+                if (layer[residue] == 0) {
+                    continue;
+                }
+
+                long candidate = bulk + residue + pivots(available, pivot, amount - bulk - residue);
+                if (candidate > reachable) {
+                    reachable = candidate;
+                    reachablePivot = pivot;
+                    reachableResidue = residue;
+                }
+            }
+        }
+
+        if (change != null && reachable >= 0) {
+            long bulk = bulk(available, residues, reachablePivot);
+            byte[] layer = fillLayers(residues, reachablePivot, reachableResidue, true);
+
+            for (int i = 0; i < denominations.length; i++) {
+                change[i] = i > reachablePivot ? max(available[i], 0) - residues[i] : 0;
+            }
+            if (reachablePivot >= 0) {
+                change[reachablePivot] = (int) (pivots(available, reachablePivot, amount - bulk - reachableResidue) /
+                        scaledDenominations[reachablePivot]);
+            }
+            walkBack(layer, reachableResidue, change);
+        }
+
+        return reachable;
+    }
+
+    /**
+     * Sums up the banknotes above a pivot, short of their residues (see
+     * {@link ChangeMaker#largestReachable(int[], long, int[])}).
+     *
+     * @param available The available banknote counts, indexed by denomination
+     * @param residues  The banknote counts of the residues, indexed by denomination
+     * @param pivot     The index of the pivot, or -1 for none
+     * @return The bulk, scaled down by the greatest common divisor
+     */
+    private long bulk(int[] available, int[] residues, int pivot) {
+        long bulk = 0;
+        for (int i = pivot + 1; i < denominations.length; i++) {
+            bulk += (max(available[i], 0) - residues[i]) * scaledDenominations[i];
+        }
+
+        return bulk;
+    }
+
+    /**
+     * Sums up the most banknotes of a pivot that fit in an amount (none for the pivot of -1).
+     *
+     * @param available The available banknote counts, indexed by denomination
+     * @param pivot     The index of the pivot, or -1 for none
+     * @param amount    The amount to fit the banknotes in, scaled down by the greatest common divisor
+     * @return The sum, scaled down by the greatest common divisor
+     */
+    private long pivots(int[] available, int pivot, long amount) {
+        if (pivot < 0) {
+            return 0;
+        }
+
+        return min(max(available[pivot], 0), amount / scaledDenominations[pivot]) * scaledDenominations[pivot];
+    }
+
+    /**
+     * Adds the banknotes of a reachable amount to a change, by walking back the layers of the dynamic program.
+     *
+     * @param layer  The layers filled by {@link ChangeMaker#fillLayers(int[], int, int, boolean)}
+     * @param amount The reachable amount, scaled down by the greatest common divisor
+     * @param change The array to add the banknote counts to, indexed by denomination
+     */
+    private void walkBack(byte[] layer, int amount, int[] change) {
+        for (int a = amount; a > 0; ) {
+            int i = layer[a] - BASE_LAYER - 1;
+
+            change[i]++;
+            a -= (int) scaledDenominations[i];
+        }
+    }
+
+    /**
+     * Finds the amounts that can be given exactly by a bounded dynamic program.
+     * <p>
+     * The program processes one denomination at a time, and records for each amount the first denomination in which it
+     * became reachable; each newly reached amount extends a previously reachable amount by exactly one banknote of the
+     * current denomination, which makes reconstructing the change a matter of walking back by that banknote.
+     *
+     * @param available     The available banknote counts, indexed by denomination
+     * @param excluded      The index of a denomination left out of the program, or -1 for none
+     * @param amount        The largest amount of interest, scaled down by the greatest common divisor
+     * @param stopWhenFound Whether to stop as soon as the largest amount is reached
+     * @return The layers (per-thread and reused for bounded amounts), an amount is reachable if its layer is not
+     * zero
+     */
+    private byte[] fillLayers(int[] available, int excluded, int amount, boolean stopWhenFound) {
+        Scratch scratch = amount < MAX_REUSED_CAPACITY
+                ? SCRATCH.get().ensureCapacity(amount + 1)
+                : new Scratch(amount + 1);
+
+        byte[] layer = scratch.layer;
+        int[] used = scratch.used;
+
+        Arrays.fill(layer, 0, amount + 1, (byte) 0);
+        layer[0] = BASE_LAYER;
+
+        for (int i = 0; i < scaledDenominations.length && !(stopWhenFound && layer[amount] != 0); i++) {
+            int denomination = (int) min(scaledDenominations[i], Integer.MAX_VALUE);
+            int count = max(available[i], 0);
+
+            if (count == 0 || denomination > amount || i == excluded) {
+                continue;
+            }
+
+            byte currentLayer = (byte) (BASE_LAYER + 1 + i);
+            for (int a = 0; a <= amount; a++) {
+                if (layer[a] != 0) {
+                    used[a] = 0;
+                } else if (a >= denomination && layer[a - denomination] != 0 && used[a - denomination] < count) {
+                    layer[a] = currentLayer;
+                    used[a] = used[a - denomination] + 1;
+                }
+            }
+        }
+
+        return layer;
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    /**
+     * Buffers of the dynamic program, reused per thread up to {@link ChangeMaker#MAX_REUSED_CAPACITY}.
+     */
+    private static final class Scratch {
+        private byte[] layer;
+        private int[] used;
+
+        private Scratch() {
+            this(0);
+        }
+
+        private Scratch(int capacity) {
+            layer = new byte[capacity];
+            used = new int[capacity];
+        }
+
+        private Scratch ensureCapacity(int capacity) {
+            if (layer.length < capacity) {
+                layer = new byte[capacity];
+                used = new int[capacity];
+            }
+
+            return this;
+        }
+    }
+
+    /**
+     * Wraps a set of denominations to be used as a key, based on its content rather than its identity.
+     */
+    private static final class DenominationsKey {
+        private final long[] denominations;
+
+        private DenominationsKey(long[] denominations) {
+            this.denominations = denominations.clone();
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(denominations);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof DenominationsKey
+                    && Arrays.equals(denominations, ((DenominationsKey) obj).denominations);
+        }
+    }
+}
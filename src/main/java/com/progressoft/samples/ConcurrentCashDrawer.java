@@ -0,0 +1,391 @@
+package com.progressoft.samples;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Represents a collection of banknotes shared by multiple threads, typically the content of a vending machine's drawer
+ * accessed by the coin acceptor, the dispenser and the auditing threads at once.
+ * <p>
+ * Each denomination is held by its own atomic counter (padded to avoid false sharing), hence, concurrent operations on
+ * the drawer never block each other. Dispensing change follows a reserve/commit/rollback protocol: the change is
+ * planned over a snapshot of the counters, then each banknote count is claimed by compare-and-set without ever dropping
+ * below zero; if any claim fails, the claimed banknotes are returned and the change is planned again. As the snapshot
+ * is not atomic, insufficient change is only reported once the counters read the same before and after a failed plan.
+ * <p>
+ * Reading the whole drawer (e.g. {@link ConcurrentCashDrawer#toMoney()}) is weakly consistent, as each denomination is
+ * read independently. A drawer holds the banknotes of a single {@link DenominationSet}, operations with Money instances
+ * of other sets are rejected.
+ */
+public class ConcurrentCashDrawer {
+    // Distance between two counters, in integers, to place each counter on its own cache line
+    private static final int PADDING = 16;
+
+    private final DenominationSet denominationSet;
+
+    private final AtomicIntegerArray banknotes;
+
+    // Per-thread snapshot of the counters, which change is planned over
+    private final ThreadLocal<int[]> snapshot;
+
+    /**
+     * Constructs a new, empty ConcurrentCashDrawer of the predefined denomination set ({@link DenominationSet#JOD}).
+     */
+    public ConcurrentCashDrawer() {
+        this(DenominationSet.JOD);
+    }
+
+    /**
+     * Constructs a new, empty ConcurrentCashDrawer.
+     *
+     * @param denominationSet The denomination set of the banknotes of the drawer
+     */
+    public ConcurrentCashDrawer(DenominationSet denominationSet) {
+        this.denominationSet = denominationSet;
+        this.banknotes = new AtomicIntegerArray(denominationSet.size() * PADDING);
+        this.snapshot = ThreadLocal.withInitial(() -> new int[denominationSet.size()]);
+    }
+
+    /**
+     * Constructs a new ConcurrentCashDrawer holding the banknotes of a Money instance, of the same denomination set.
+     *
+     * @param initial The initial banknotes of the drawer
+     */
+    public ConcurrentCashDrawer(Money initial) {
+        this(initial.denominationSet());
+        add(initial);
+    }
+
+    /**
+     * Fetches the denomination set of this drawer.
+     *
+     * @return The {@link DenominationSet} of the banknotes of this drawer
+     */
+    public DenominationSet denominationSet() {
+        return denominationSet;
+    }
+
+    /**
+     * Calculates the total amount within this drawer.
+     *
+     * @return the total amount as a double
+     */
+    public double amount() {
+        long sum = 0;
+
+        for (int i = 0; i < denominationSet.size(); i++) {
+            sum += denominationSet.denomination(i) * count(i);
+        }
+
+        return sum / (double) denominationSet.unitsPerMajor();
+    }
+
+    /**
+     * Adds the banknotes of a Money instance to this drawer.
+     *
+     * @param money The banknotes to add
+     * @return This drawer
+     * @throws IllegalArgumentException If the Money instance belongs to another denomination set
+     */
+    public ConcurrentCashDrawer add(Money money) {
+        denominationSet.check(money);
+
+        for (int i = 0; i < denominationSet.size(); i++) {
+            int count = money.count(i);
+
+            if (count != 0) {
+                banknotes.getAndAdd(i * PADDING, count);
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Dispenses an amount of change from this drawer.
+     * <p>
+     * Similar to {@link Money#minus(Money)}, 'amount' is treated as a single decimal value rather than a collection of
+     * banknotes.
+     *
+     * @param amount The amount of change to dispense
+     * @return A {@link Money} instance holding the dispensed banknotes
+     * @throws InsufficientChangeException If there is insufficient change, in which case the drawer is left unchanged
+     * @throws IllegalArgumentException    If the amount belongs to another denomination set
+     */
+    public Money dispenseChange(Money amount) {
+        Reservation reservation = reserveChange(amount);
+        reservation.commit();
+
+        return reservation.toMoney();
+    }
+
+    /**
+     * Reserves an amount of change from this drawer.
+     * <p>
+     * The reserved banknotes are immediately unavailable to other threads, and must be either committed (dispensed) or
+     * rolled back (returned to the drawer).
+     *
+     * @param amount The amount of change to reserve
+     * @return A {@link Reservation} of the banknotes that make up the change
+     * @throws InsufficientChangeException If there is insufficient change, in which case the drawer is left unchanged
+     * @throws IllegalArgumentException    If the amount belongs to another denomination set
+     */
+    public Reservation reserveChange(Money amount) {
+        denominationSet.check(amount);
+
+        return reserveChange(amount.amountInPiasters());
+    }
+
+    /**
+     * Reserves an amount of change from this drawer.
+     *
+     * @param piasters The amount of change to reserve in minor units
+     * @return A {@link Reservation} of the banknotes that make up the change
+     * @throws InsufficientChangeException If there is insufficient change, in which case the drawer is left unchanged
+     */
+    Reservation reserveChange(long piasters) {
+        Reservation reservation = tryReserveChange(piasters);
+
+        if (reservation == null) {
+            throw new InsufficientChangeException(denominationSet, snapshot.get(), piasters);
+        }
+
+        return reservation;
+    }
+
+    /**
+     * Reserves an amount of change from this drawer, if possible.
+     *
+     * @param piasters The amount of change to reserve in minor units
+     * @return A {@link Reservation} of the banknotes that make up the change, or null if there is insufficient change
+     */
+    Reservation tryReserveChange(long piasters) {
+        int[] snapshot = this.snapshot.get();
+        int[] change = new int[denominationSet.size()];
+        Money inserted = denominationSet.zero();
+
+        read(snapshot, inserted);
+        while (true) {
+            if (!denominationSet.changeMaker().makeChange(snapshot, piasters, change)) {
+                // Plan again over the counters that changed while planning, the failure may not have been theirs
+                if (read(snapshot, inserted)) {
+                    continue;
+                }
+
+                return null;
+            }
+
+            int claimed = 0;
+            while (claimed < change.length && claim(claimed, change[claimed])) {
+                claimed++;
+            }
+
+            if (claimed == change.length) {
+                return new Reservation(change);
+            }
+
+            // Another thread took the planned banknotes in the meantime, return the claimed ones and plan again
+            for (int i = 0; i < claimed; i++) {
+                release(i, change[i]);
+            }
+            read(snapshot, inserted);
+        }
+    }
+
+    /**
+     * Takes the banknotes inserted for a sale and dispenses its change, out of the drawer's banknotes along with the
+     * inserted ones, as if the inserted banknotes were added to the drawer before the change is dispensed.
+     * <p>
+     * Only the banknotes of the change beyond the inserted ones are claimed from the drawer, and only the inserted
+     * banknotes beyond the change are then added to it; hence, the inserted banknotes never reach the drawer (and never
+     * have to be taken back from other threads) unless the sale succeeds.
+     *
+     * @param inserted The banknotes inserted for the sale, of the drawer's denomination set
+     * @param piasters The amount of change to dispense in minor units
+     * @return A {@link Money} instance holding the dispensed banknotes
+     * @throws InsufficientChangeException If there is insufficient change, in which case the drawer is left unchanged
+     */
+    Money exchange(Money inserted, long piasters) {
+        int[] snapshot = this.snapshot.get();
+        int[] change = new int[denominationSet.size()];
+
+        read(snapshot, inserted);
+        while (true) {
+            if (!denominationSet.changeMaker().makeChange(snapshot, piasters, change)) {
+                // Plan again over the counters that changed while planning, the failure may not have been theirs
+                if (read(snapshot, inserted)) {
+                    continue;
+                }
+
+                throw new InsufficientChangeException(denominationSet, snapshot, piasters);
+            }
+
+            int claimed = 0;
+            while (claimed < change.length && claim(claimed, Math.max(change[claimed] - inserted.count(claimed), 0))) {
+                claimed++;
+            }
+
+            if (claimed == change.length) {
+                for (int i = 0; i < change.length; i++) {
+                    int taken = change[i] - inserted.count(i);
+
+                    if (taken > 0 && MoneyMetrics.ENABLED) {
+                        int after = count(i);
+                        MoneyMetrics.recordWithdrawal(denominationSet, i, after + taken, after);
+                    }
+
+                    release(i, Math.max(-taken, 0));
+                }
+
+                return Money.fromBanknotes(denominationSet, change);
+            }
+
+            // Another thread took the planned banknotes in the meantime, return the claimed ones and plan again
+            for (int i = 0; i < claimed; i++) {
+                release(i, Math.max(change[i] - inserted.count(i), 0));
+            }
+            read(snapshot, inserted);
+        }
+    }
+
+    /**
+     * Reads the counters of this drawer, along with banknotes yet to be added to it, into a snapshot.
+     *
+     * @param snapshot The array to read the banknote counts to, indexed by denomination
+     * @param inserted The banknotes to count in on top of the drawer's
+     * @return true if any count differs from the previous content of the snapshot, otherwise false
+     */
+    private boolean read(int[] snapshot, Money inserted) {
+        boolean changed = false;
+
+        for (int i = 0; i < snapshot.length; i++) {
+            int count = count(i) + inserted.count(i);
+
+            changed |= snapshot[i] != count;
+            snapshot[i] = count;
+        }
+
+        return changed;
+    }
+
+    /**
+     * Decrements the number of banknotes of a denomination, unless it drops below zero.
+     *
+     * @param index The denomination index within the denomination set of this drawer
+     * @param count The number of banknotes to take
+     * @return true if the banknotes were taken, otherwise false
+     */
+    private boolean claim(int index, int count) {
+        if (count == 0) {
+            return true;
+        }
+
+        while (true) {
+            int current = banknotes.get(index * PADDING);
+
+            if (current < count) {
+                return false;
+            }
+
+            if (banknotes.compareAndSet(index * PADDING, current, current - count)) {
+                return true;
+            }
+        }
+    }
+
+    private void release(int index, int count) {
+        if (count != 0) {
+            banknotes.getAndAdd(index * PADDING, count);
+        }
+    }
+
+    /**
+     * Fetches the number of banknotes of a denomination.
+     *
+     * @param index The denomination index within the denomination set of this drawer
+     * @return The number of banknotes of the given denomination
+     */
+    int count(int index) {
+        return banknotes.get(index * PADDING);
+    }
+
+    /**
+     * Creates a (weakly consistent) snapshot of this drawer.
+     *
+     * @return A new {@link Money} instance holding the current banknotes of this drawer
+     */
+    public Money toMoney() {
+        int[] result = new int[denominationSet.size()];
+
+        for (int i = 0; i < result.length; i++) {
+            result[i] = count(i);
+        }
+
+        return Money.wrap(denominationSet, result);
+    }
+
+    @Override
+    public String toString() {
+        return denominationSet.format(toMoney().amountInPiasters());
+    }
+
+    /**
+     * Represents banknotes taken out of a {@link ConcurrentCashDrawer}, pending to be either committed or rolled back.
+     */
+    public final class Reservation {
+        private final int[] change;
+
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private Reservation(int[] change) {
+            this.change = change;
+        }
+
+        /**
+         * Finalizes the reservation, the reserved banknotes are considered dispensed.
+         *
+         * @throws IllegalStateException If the reservation was already committed or rolled back
+         */
+        public void commit() {
+            complete();
+
+            // The banknotes already left the drawer when reserved, the counts are only read for the metrics
+            if (MoneyMetrics.ENABLED) {
+                for (int i = 0; i < change.length; i++) {
+                    if (change[i] != 0) {
+                        int after = count(i);
+                        MoneyMetrics.recordWithdrawal(denominationSet, i, after + change[i], after);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Cancels the reservation, the reserved banknotes are returned to the drawer.
+         *
+         * @throws IllegalStateException If the reservation was already committed or rolled back
+         */
+        public void rollback() {
+            complete();
+
+            for (int i = 0; i < change.length; i++) {
+                release(i, change[i]);
+            }
+        }
+
+        private void complete() {
+            if (!completed.compareAndSet(false, true)) {
+                throw new IllegalStateException("Reservation was already completed");
+            }
+        }
+
+        /**
+         * Creates a snapshot of the reserved banknotes.
+         *
+         * @return A new {@link Money} instance holding the reserved banknotes
+         */
+        public Money toMoney() {
+            return Money.fromBanknotes(denominationSet, change);
+        }
+    }
+}
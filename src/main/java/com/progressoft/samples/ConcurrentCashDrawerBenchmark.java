@@ -0,0 +1,124 @@
+package com.progressoft.samples;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.progressoft.samples.Money.*;
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Measurement(iterations = 10, time = 1)
+@Warmup(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentCashDrawerBenchmark {
+    // A customer inserts a dinar in coins and receives the same amount back, which keeps the drawer balanced
+    private static final Money INSERTED = FiftyPiasters.plus(TwentyFivePiasters).plus(TwentyFivePiasters);
+
+    private static final Money INITIAL = FiftyPiasters.times(10_000).plus(TwentyFivePiasters.times(20_000));
+
+    private ConcurrentCashDrawer concurrentDrawer;
+
+    private Money lockedDrawer;
+
+    private final Object lock = new Object();
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        concurrentDrawer = new ConcurrentCashDrawer(INITIAL);
+        lockedDrawer = INITIAL;
+    }
+
+    /**
+     * Processes a single sale against the shared {@link ConcurrentCashDrawer}.
+     */
+    private Money concurrentSale() {
+        concurrentDrawer.add(INSERTED);
+        return concurrentDrawer.dispenseChange(OneDinar);
+    }
+
+    /**
+     * Processes a single sale against a shared {@link Money} reference guarded by a global lock, the only safe option
+     * prior to {@link ConcurrentCashDrawer}.
+     */
+    private Money lockedSale() {
+        synchronized (lock) {
+            lockedDrawer = lockedDrawer.plus(INSERTED).minus(OneDinar);
+            return lockedDrawer;
+        }
+    }
+
+    /**
+     * Benchmarks the throughput of sales against a {@link ConcurrentCashDrawer} shared by a single thread.
+     */
+    @Benchmark
+    @Threads(1)
+    public Money concurrentSale1Thread() {
+        return concurrentSale();
+    }
+
+    /**
+     * Benchmarks the throughput of sales against a {@link ConcurrentCashDrawer} shared by two threads.
+     */
+    @Benchmark
+    @Threads(2)
+    public Money concurrentSale2Threads() {
+        return concurrentSale();
+    }
+
+    /**
+     * Benchmarks the throughput of sales against a {@link ConcurrentCashDrawer} shared by four threads.
+     */
+    @Benchmark
+    @Threads(4)
+    public Money concurrentSale4Threads() {
+        return concurrentSale();
+    }
+
+    /**
+     * Benchmarks the throughput of sales against a {@link ConcurrentCashDrawer} shared by as many threads as cores.
+     */
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Money concurrentSaleMaxThreads() {
+        return concurrentSale();
+    }
+
+    /**
+     * Benchmarks the throughput of sales against a lock-guarded {@link Money} shared by a single thread.
+     */
+    @Benchmark
+    @Threads(1)
+    public Money lockedSale1Thread() {
+        return lockedSale();
+    }
+
+    /**
+     * Benchmarks the throughput of sales against a lock-guarded {@link Money} shared by two threads.
+     */
+    @Benchmark
+    @Threads(2)
+    public Money lockedSale2Threads() {
+        return lockedSale();
+    }
+
+    /**
+     * Benchmarks the throughput of sales against a lock-guarded {@link Money} shared by four threads.
+     */
+    @Benchmark
+    @Threads(4)
+    public Money lockedSale4Threads() {
+        return lockedSale();
+    }
+
+    /**
+     * Benchmarks the throughput of sales against a lock-guarded {@link Money} shared by as many threads as cores.
+     */
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Money lockedSaleMaxThreads() {
+        return lockedSale();
+    }
+}
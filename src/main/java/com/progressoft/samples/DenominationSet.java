@@ -0,0 +1,237 @@
+package com.progressoft.samples;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Defines the banknotes of a currency, in exact minor units (e.g. piasters for the Jordanian dinar), each banknote
+ * being assigned a dense index in ascending order of value.
+ * <p>
+ * {@link Money} instances (and drawers) hold one count per banknote of their denomination set, indexed as defined here,
+ * and arithmetic between instances of different sets is rejected. Sets are registered by currency code upon
+ * {@link DenominationSet#of(String, int, long...)}, hence, there is exactly one instance per currency, and sets can be
+ * compared by identity.
+ * <p>
+ * {@link DenominationSet#JOD} is the set of the predefined constants of {@link Money} (e.g. {@link Money#OneDinar}).
+ */
+public final class DenominationSet {
+    private static final ConcurrentMap<String, DenominationSet> SETS = new ConcurrentHashMap<>();
+
+    // The largest number of fraction digits, which keeps the minor units of a major unit within a long
+    private static final int MAX_FRACTION_DIGITS = 9;
+
+    /**
+     * The Jordanian dinar, in piasters (a hundredth of a dinar), from a piaster up to fifty dinars.
+     */
+    public static final DenominationSet JOD = of("JOD", 2, 1, 5, 10, 25, 50, 100, 500, 1_000, 2_000, 5_000);
+
+    private final String currency;
+
+    private final int fractionDigits;
+
+    // The number of minor units in a major unit (e.g. 100 piasters in a dinar)
+    private final long unitsPerMajor;
+
+    // Banknote values in minor units, sorted ascending; the index of a value is the index of its count
+    private final long[] denominations;
+
+    private final ChangeMaker changeMaker;
+
+    // Created lazily, as the predefined set is created while Money itself is being initialized
+    private volatile Money zero;
+
+    private DenominationSet(String currency, int fractionDigits, long[] denominations) {
+        this.currency = currency;
+        this.fractionDigits = fractionDigits;
+        this.unitsPerMajor = (long) Math.pow(10, fractionDigits);
+        this.denominations = denominations;
+        this.changeMaker = ChangeMaker.forDenominations(denominations);
+    }
+
+    /**
+     * Defines (or fetches) the denomination set of a currency.
+     *
+     * @param currency       The currency code (e.g. JOD)
+     * @param fractionDigits The number of digits of the minor unit (e.g. 2 for piasters, a hundredth of a dinar)
+     * @param denominations  The banknote values in minor units, sorted ascending
+     * @return The {@link DenominationSet} of the currency, the same instance for every call with the same currency
+     * @throws IllegalArgumentException If any argument is invalid, or if the currency is already defined differently
+     */
+    public static DenominationSet of(String currency, int fractionDigits, long... denominations) {
+        if (currency == null || currency.isEmpty()) {
+            throw new IllegalArgumentException("Argument currency must be a non-empty string");
+        }
+
+        if (fractionDigits < 0 || fractionDigits > MAX_FRACTION_DIGITS) {
+            throw new IllegalArgumentException("Argument fractionDigits must be between 0 and " + MAX_FRACTION_DIGITS);
+        }
+
+        if (denominations.length == 0 || denominations[0] <= 0) {
+            throw new IllegalArgumentException("Argument denominations must hold positive values");
+        }
+
+        for (int i = 1; i < denominations.length; i++) {
+            if (denominations[i] <= denominations[i - 1]) {
+                throw new IllegalArgumentException(
+                        "Argument denominations must be sorted ascending without duplicates"
+                );
+            }
+        }
+
+        DenominationSet set = SETS.computeIfAbsent(
+                currency,
+                key -> new DenominationSet(currency, fractionDigits, denominations.clone())
+        );
+
+        if (set.fractionDigits != fractionDigits || !Arrays.equals(set.denominations, denominations)) {
+            throw new IllegalArgumentException("Argument currency is already defined with different denominations");
+        }
+
+        return set;
+    }
+
+    /**
+     * Fetches the currency code of this set.
+     *
+     * @return The currency code
+     */
+    public String currency() {
+        return currency;
+    }
+
+    /**
+     * Fetches the number of digits of the minor unit of this set.
+     *
+     * @return The number of fraction digits
+     */
+    public int fractionDigits() {
+        return fractionDigits;
+    }
+
+    /**
+     * Fetches the number of banknotes of this set.
+     *
+     * @return The number of denominations
+     */
+    public int size() {
+        return denominations.length;
+    }
+
+    /**
+     * Fetches the value of a banknote.
+     *
+     * @param index The denomination index
+     * @return The banknote value in minor units
+     * @throws IndexOutOfBoundsException If the index is not within this set
+     */
+    public long denomination(int index) {
+        return denominations[index];
+    }
+
+    /**
+     * Finds the denomination index of a banknote value.
+     *
+     * @param value The banknote value in minor units
+     * @return The index of the banknote, or a negative number if the value is not a banknote of this set
+     */
+    public int indexOf(long value) {
+        return Arrays.binarySearch(denominations, value);
+    }
+
+    /**
+     * Fetches the empty Money instance of this set.
+     *
+     * @return A {@link Money} instance holding no banknotes
+     */
+    public Money zero() {
+        Money result = zero;
+
+        if (result == null) {
+            synchronized (this) {
+                if (zero == null) {
+                    zero = Money.wrap(this, new int[denominations.length]);
+                }
+
+                result = zero;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Creates a Money instance holding a single banknote of this set.
+     *
+     * @param value The banknote value in minor units
+     * @return A {@link Money} instance holding the banknote, possibly shared (see {@link MoneyCache})
+     * @throws IllegalArgumentException If the value is not a banknote of this set
+     */
+    public Money banknote(long value) {
+        int index = indexOf(value);
+
+        if (index < 0) {
+            throw new IllegalArgumentException("Argument value must be a valid banknote");
+        }
+
+        int[] banknotes = MoneyCache.scratch(this);
+        Arrays.fill(banknotes, 0);
+        banknotes[index] = 1;
+
+        return MoneyCache.intern(this, banknotes);
+    }
+
+    /**
+     * Fetches the banknote values of this set, indexed by denomination.
+     *
+     * @return The banknote values in minor units, sorted ascending; not copied, callers must not modify it
+     */
+    long[] denominations() {
+        return denominations;
+    }
+
+    /**
+     * Fetches the number of minor units in a major unit.
+     *
+     * @return The number of minor units in a major unit (e.g. 100 piasters in a dinar)
+     */
+    long unitsPerMajor() {
+        return unitsPerMajor;
+    }
+
+    /**
+     * Fetches the (cached) ChangeMaker of this set.
+     *
+     * @return The {@link ChangeMaker} of the banknotes of this set
+     */
+    ChangeMaker changeMaker() {
+        return changeMaker;
+    }
+
+    /**
+     * Verifies that a Money instance belongs to this set.
+     *
+     * @param money The Money instance to verify
+     * @throws IllegalArgumentException If the Money instance belongs to another set
+     */
+    void check(Money money) {
+        if (money.denominationSet() != this) {
+            throw new IllegalArgumentException("Could not perform operation; mismatched denomination sets");
+        }
+    }
+
+    /**
+     * Formats an amount in the major unit of this set.
+     *
+     * @param minorUnits The amount in minor units
+     * @return The amount with as many decimals as the minor unit has digits (e.g. 0.25)
+     */
+    String format(long minorUnits) {
+        return String.format("%." + fractionDigits + "f", minorUnits / (double) unitsPerMajor);
+    }
+
+    @Override
+    public String toString() {
+        return currency;
+    }
+}
@@ -0,0 +1,77 @@
+package com.progressoft.samples;
+
+/**
+ * Decides which banknotes make up the change, by weighing each banknote a drawer could dispense; among the exact
+ * combinations of the available banknotes, the one of least total weight is dispensed (see {@link DispensingTable}).
+ * <p>
+ * Weights may depend on the number of banknotes the drawer holds, yet change is chosen fastest when they take few
+ * distinct values, as a lookup table is precomputed per distinct set of weights.
+ */
+@FunctionalInterface
+public interface DispensingPolicy {
+    /**
+     * Weighs a banknote.
+     *
+     * @param denominationSet The denomination set of the drawer
+     * @param index           The denomination index of the banknote
+     * @param available       The number of banknotes of that denomination held by the drawer
+     * @return The weight of dispensing one banknote of that denomination, must be positive
+     */
+    long weight(DenominationSet denominationSet, int index, int available);
+
+    /**
+     * Creates a policy that dispenses as few banknotes as possible.
+     *
+     * @return A {@link DispensingPolicy} weighing every banknote the same
+     */
+    static DispensingPolicy fewestNotes() {
+        return (denominationSet, index, available) -> 1;
+    }
+
+    /**
+     * Creates a policy that keeps the small banknotes for when nothing else makes up the change, dispensing a few
+     * larger banknotes rather than a smaller one (e.g. three 0.10 rather than 0.25 and 0.05).
+     *
+     * @return A {@link DispensingPolicy} weighing banknotes in inverse proportion to the square of their value
+     */
+    static DispensingPolicy preserveSmall() {
+        return (denominationSet, index, available) -> {
+            // Capped, so that the weight of thousands of banknotes stays well within a long
+            long ratio = Math.min(
+                    denominationSet.denomination(denominationSet.size() - 1) / denominationSet.denomination(index),
+                    1 << 20
+            );
+
+            return ratio * ratio;
+        };
+    }
+
+    /**
+     * Creates a policy that drains the denominations about to overflow their tubes, that is, filled to three quarters
+     * of their capacity or more, then dispenses as few banknotes as possible.
+     *
+     * @param capacities The number of banknotes each tube holds, indexed by denomination
+     * @return A {@link DispensingPolicy} favoring the banknotes of (nearly) full tubes
+     * @throws IllegalArgumentException If a capacity is not positive
+     */
+    static DispensingPolicy drainOverflow(int... capacities) {
+        int[] limits = new int[capacities.length];
+
+        for (int i = 0; i < capacities.length; i++) {
+            if (capacities[i] <= 0) {
+                throw new IllegalArgumentException("Argument capacities must hold positive values");
+            }
+
+            limits[i] = capacities[i] - capacities[i] / 4;
+        }
+
+        // A banknote of a full tube is dispensed even when it takes several of them to replace another banknote
+        return (denominationSet, index, available) -> {
+            if (index >= limits.length) {
+                throw new IllegalArgumentException("Argument capacities must cover every denomination");
+            }
+
+            return available >= limits[index] ? 1 : denominationSet.size() + 1;
+        };
+    }
+}
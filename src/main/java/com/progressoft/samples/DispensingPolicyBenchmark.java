@@ -0,0 +1,98 @@
+package com.progressoft.samples;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.progressoft.samples.Money.*;
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 3, time = 1)
+@Fork(1)
+public class DispensingPolicyBenchmark {
+    private static final Money[] BANKNOTES = {OnePiaster, FivePiasters, TenPiasters, TwentyFivePiasters, FiftyPiasters,
+            OneDinar, FiveDinars, TenDinars, TwentyDinars, FiftyDinars};
+
+    private static final Money[] PRICES = {TwentyFivePiasters.plus(TenPiasters), FiftyPiasters,
+            FiftyPiasters.plus(TwentyFivePiasters), OneDinar.plus(TwentyFivePiasters), OneDinar.times(2)};
+
+    // The policy choosing the change, "minus" standing for Money.minus(Money), which dispenses greedily
+    @Param({"minus", "fewestNotes", "preserveSmall", "drainOverflow"})
+    public String policy;
+
+    private DispensingTable table;
+
+    private Money[] changes;
+
+    private Money drawer;
+
+    // A drawer without fifty piasters, for which the precomputed change is often unavailable
+    private Money depletedDrawer;
+
+    private int index;
+
+    @Setup
+    public void setup() {
+        switch (policy) {
+            case "fewestNotes":
+                table = DispensingTable.of(DispensingPolicy.fewestNotes(), PRICES);
+                break;
+            case "preserveSmall":
+                table = DispensingTable.of(DispensingPolicy.preserveSmall(), PRICES);
+                break;
+            case "drainOverflow":
+                DispensingPolicy drainOverflow = DispensingPolicy.drainOverflow(50, 50, 50, 50, 50, 50, 20, 20, 20, 20);
+                table = DispensingTable.of(drainOverflow, PRICES);
+                break;
+            default:
+                table = null;
+        }
+
+        // The change of every sale at the prices, paid with a single banknote
+        List<Money> amounts = new ArrayList<>();
+        for (Money price : PRICES) {
+            for (Money banknote : BANKNOTES) {
+                if (banknote.amountInPiasters() > price.amountInPiasters()) {
+                    amounts.add(OnePiaster.times((int) (banknote.amountInPiasters() - price.amountInPiasters())));
+                }
+            }
+        }
+        changes = amounts.toArray(new Money[0]);
+
+        drawer = sum(OnePiaster.times(40), FivePiasters.times(45), TenPiasters.times(30), TwentyFivePiasters.times(40),
+                FiftyPiasters.times(30), OneDinar.times(40), FiveDinars.times(10), TenDinars.times(10),
+                TwentyDinars.times(5));
+        depletedDrawer = sum(OnePiaster.times(40), FivePiasters.times(45), TenPiasters.times(30),
+                TwentyFivePiasters.times(40), OneDinar.times(40), FiveDinars.times(10), TenDinars.times(10),
+                TwentyDinars.times(5));
+    }
+
+    /**
+     * Benchmarks choosing and dispensing the change of a sale from a well stocked drawer.
+     */
+    @Benchmark
+    public Money benchmarkDispense() {
+        return dispense(drawer);
+    }
+
+    /**
+     * Benchmarks choosing and dispensing the change of a sale from a drawer lacking a denomination.
+     */
+    @Benchmark
+    public Money benchmarkDispenseDepleted() {
+        return dispense(depletedDrawer);
+    }
+
+    private Money dispense(Money from) {
+        Money change = changes[index];
+        index = (index + 1) % changes.length;
+
+        return table == null ? from.minus(change) : from.minus(change, table);
+    }
+}
@@ -0,0 +1,442 @@
+package com.progressoft.samples;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Chooses change according to a {@link DispensingPolicy}, from lookup tables precomputed for the prices of a machine.
+ * <p>
+ * Customers stop inserting banknotes once the price is covered, hence, the change of a sale is less than the last
+ * banknote inserted, and no less than that banknote minus the price; for low prices, only a few amounts below each
+ * banknote value can be called for. For each such amount, the table holds the combination of least total weight,
+ * assuming an unlimited supply of every banknote; when the drawer holds that combination, it is the best one the drawer
+ * can give, and choosing change takes a lookup and a comparison per denomination. Otherwise, a bounded dynamic program
+ * finds the best combination among the available banknotes.
+ * <p>
+ * A table is precomputed per distinct set of weights, denominations the drawer is out of being left out of the table,
+ * hence, running out of a denomination, or a policy whose weights depend on the drawer (such as
+ * {@link DispensingPolicy#drainOverflow(int...)}), adds tables as the drawer changes, up to a bound beyond which the
+ * dynamic program is used instead. Amounts no sale at the given prices calls for are dispensed by the dynamic program
+ * too, or as by {@link Money#minus(Money)} from the largest banknote value up.
+ * <p>
+ * Instances are thread-safe, the dynamic program works on per-thread scratch buffers that are reused across calls.
+ */
+public final class DispensingTable {
+    // The largest number of tables held per instance, which bounds the memory of policies with varying weights
+    private static final int MAX_TABLES = 64;
+
+    // Marks an amount the tables do not cover, or cannot be given with any number of banknotes
+    private static final int NOT_COVERED = -1;
+
+    // Stands for the weight of a denomination the drawer is out of, which the tables leave out
+    private static final long ABSENT = 0;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final DenominationSet denominationSet;
+
+    private final DispensingPolicy policy;
+
+    // Banknote values scaled down by their greatest common divisor
+    private final int[] scaledDenominations;
+
+    private final long gcd;
+
+    // The (scaled) largest banknote value, which every amount of change is less than
+    private final int bound;
+
+    // The position within the tables of each (scaled) amount of change a sale at one of the prices can call for
+    private final int[] slots;
+
+    private final int coveredAmounts;
+
+    private final ConcurrentMap<WeightsKey, int[]> tables = new ConcurrentHashMap<>();
+
+    // The most recently used table, which spares the lookup by weights while they do not change
+    private volatile Table latest;
+
+    private DispensingTable(DenominationSet denominationSet, DispensingPolicy policy, long[] prices) {
+        long[] denominations = denominationSet.denominations();
+
+        long divisor = 0;
+        for (long denomination : denominations) {
+            divisor = gcd(divisor, denomination);
+        }
+
+        this.denominationSet = denominationSet;
+        this.policy = policy;
+        this.gcd = divisor;
+        this.scaledDenominations = new int[denominations.length];
+        this.bound = (int) min(denominations[denominations.length - 1] / gcd, Integer.MAX_VALUE - 1);
+        this.slots = new int[bound];
+
+        for (int i = 0; i < denominations.length; i++) {
+            scaledDenominations[i] = (int) min(denominations[i] / gcd, Integer.MAX_VALUE);
+        }
+
+        Arrays.fill(slots, NOT_COVERED);
+        for (long price : prices) {
+            for (int denomination : scaledDenominations) {
+                long lowest = max(0, denomination * gcd - price);
+
+                for (int a = (int) ((lowest + gcd - 1) / gcd); a < min(denomination, bound); a++) {
+                    slots[a] = 0;
+                }
+            }
+        }
+
+        int covered = 0;
+        for (int a = 0; a < bound; a++) {
+            if (slots[a] != NOT_COVERED) {
+                slots[a] = covered++;
+            }
+        }
+        this.coveredAmounts = covered;
+
+        long[] weights = new long[denominations.length];
+        weigh(new int[denominations.length], weights);
+
+        latest = new Table(weights.clone(), plans(weights));
+        tables.put(new WeightsKey(latest.weights), latest.plans);
+    }
+
+    /**
+     * Precomputes the change a policy dispenses for sales at a set of prices.
+     *
+     * @param policy The policy choosing among the combinations of banknotes
+     * @param prices The prices of the items for sale, of the same denomination set, treated as decimal values
+     * @return A {@link DispensingTable} of the denomination set of the prices
+     * @throws IllegalArgumentException If no price is given, or if the prices belong to different denomination sets
+     */
+    public static DispensingTable of(DispensingPolicy policy, Money... prices) {
+        if (prices.length == 0) {
+            throw new IllegalArgumentException("Argument prices must hold at least one price");
+        }
+
+        DenominationSet denominationSet = prices[0].denominationSet();
+        long[] amounts = new long[prices.length];
+
+        for (int i = 0; i < prices.length; i++) {
+            denominationSet.check(prices[i]);
+            amounts[i] = prices[i].amountInPiasters();
+        }
+
+        return new DispensingTable(denominationSet, policy, amounts);
+    }
+
+    /**
+     * Fetches the denomination set of this table.
+     *
+     * @return The {@link DenominationSet} of the prices
+     */
+    public DenominationSet denominationSet() {
+        return denominationSet;
+    }
+
+    /**
+     * Fetches the policy of this table.
+     *
+     * @return The {@link DispensingPolicy} choosing among the combinations of banknotes
+     */
+    public DispensingPolicy policy() {
+        return policy;
+    }
+
+    /**
+     * Calculates the banknotes the policy dispenses to give an exact amount of change.
+     *
+     * @param available The available banknote counts, indexed by denomination
+     * @param amount    The amount of change to give in minor units
+     * @param change    The array to write the banknote counts of the change to, indexed by denomination; its content is
+     *                  unspecified if no change could be made
+     * @return true if exact change could be made, otherwise false
+     * @throws IllegalArgumentException If the policy weighs a banknote as not positive
+     */
+    boolean makeChange(int[] available, long amount, int[] change) {
+        if (amount < 0 || amount % gcd != 0) {
+            return false;
+        }
+
+        if (amount / gcd >= bound) {
+            return denominationSet.changeMaker().makeChange(available, amount, change);
+        }
+
+        int scaledAmount = (int) (amount / gcd);
+        Scratch scratch = SCRATCH.get();
+        long[] weights = scratch.weights(scaledDenominations.length);
+
+        weigh(available, weights);
+
+        for (int i = 0; i < weights.length; i++) {
+            if (available[i] <= 0) {
+                weights[i] = ABSENT;
+            }
+        }
+
+        int[] plans = plansFor(weights);
+        int slot = slots[scaledAmount];
+        if (plans != null && slot != NOT_COVERED && fits(plans, slot, available)) {
+            System.arraycopy(plans, slot * scaledDenominations.length, change, 0, change.length);
+
+            return true;
+        }
+
+        return makeBoundedChange(scratch, available, scaledAmount, weights, change);
+    }
+
+    private void weigh(int[] available, long[] weights) {
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = policy.weight(denominationSet, i, available[i]);
+
+            if (weights[i] <= 0) {
+                throw new IllegalArgumentException(
+                        "Could not dispense change; the policy weighs a banknote as not positive"
+                );
+            }
+        }
+    }
+
+    /**
+     * Fetches the table of a set of weights, precomputing it if there is room for it.
+     *
+     * @return The table, or null if the weights are new and the bound on the number of tables is reached
+     */
+    private int[] plansFor(long[] weights) {
+        Table table = latest;
+
+        if (Arrays.equals(table.weights, weights)) {
+            return table.plans;
+        }
+
+        int[] plans = tables.get(new WeightsKey(weights));
+
+        if (plans == null) {
+            if (tables.size() >= MAX_TABLES) {
+                return null;
+            }
+
+            long[] key = weights.clone();
+            plans = tables.computeIfAbsent(new WeightsKey(key), k -> plans(key));
+        }
+
+        latest = new Table(weights.clone(), plans);
+
+        return plans;
+    }
+
+    /**
+     * Finds the combination of least total weight of each covered amount, assuming an unlimited supply of every
+     * banknote, by an unbounded dynamic program.
+     *
+     * @return The banknote counts of each covered amount, one run of counts per slot
+     */
+    private int[] plans(long[] weights) {
+        int n = scaledDenominations.length;
+        long[] costs = new long[bound];
+        int[] choices = new int[bound];
+
+        Arrays.fill(costs, Long.MAX_VALUE);
+        costs[0] = 0;
+
+        for (int a = 1; a < bound; a++) {
+            for (int i = 0; i < n && scaledDenominations[i] <= a; i++) {
+                if (weights[i] == ABSENT) {
+                    continue;
+                }
+
+                long previous = costs[a - scaledDenominations[i]];
+
+                if (previous != Long.MAX_VALUE && previous + weights[i] < costs[a]) {
+                    costs[a] = previous + weights[i];
+                    choices[a] = i;
+                }
+            }
+        }
+
+        int[] plans = new int[coveredAmounts * n];
+
+        for (int a = 0; a < bound; a++) {
+            int offset = slots[a] * n;
+
+            if (slots[a] == NOT_COVERED) {
+                continue;
+            }
+
+            if (costs[a] == Long.MAX_VALUE) {
+                plans[offset] = NOT_COVERED;
+                continue;
+            }
+
+            // Walk back one banknote at a time, each amount having been reached from a cheaper one
+            for (int rest = a; rest > 0; rest -= scaledDenominations[choices[rest]]) {
+                plans[offset + choices[rest]]++;
+            }
+        }
+
+        return plans;
+    }
+
+    private boolean fits(int[] plans, int slot, int[] available) {
+        int offset = slot * scaledDenominations.length;
+
+        if (plans[offset] == NOT_COVERED) {
+            return false;
+        }
+
+        for (int i = 0; i < scaledDenominations.length; i++) {
+            if (plans[offset + i] > available[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Finds the combination of least total weight among the available banknotes by a bounded dynamic program, where
+     * the banknotes of each denomination are split into groups of 1, 2, 4, ... banknotes, each group being either
+     * dispensed or not.
+     */
+    private boolean makeBoundedChange(Scratch scratch, int[] available, int amount, long[] weights, int[] change) {
+        int groups = 0;
+
+        for (int i = 0; i < scaledDenominations.length; i++) {
+            int count = min(max(available[i], 0), amount / scaledDenominations[i]);
+
+            for (int size = 1; count > 0; size <<= 1) {
+                int group = min(size, count);
+
+                scratch.ensureGroups(groups + 1, amount + 1);
+                scratch.groupDenominations[groups] = i;
+                scratch.groupSizes[groups] = group;
+                groups++;
+                count -= group;
+            }
+        }
+
+        scratch.ensureGroups(groups, amount + 1);
+
+        long[] costs = scratch.costs;
+        long[][] taken = scratch.taken;
+        int words = (amount >> 6) + 1;
+
+        Arrays.fill(costs, 0, amount + 1, Long.MAX_VALUE);
+        costs[0] = 0;
+
+        for (int g = 0; g < groups; g++) {
+            int i = scratch.groupDenominations[g];
+            int value = scratch.groupSizes[g] * scaledDenominations[i];
+            long weight = scratch.groupSizes[g] * weights[i];
+            long[] bits = taken[g];
+
+            Arrays.fill(bits, 0, words, 0);
+
+            for (int a = amount; a >= value; a--) {
+                long previous = costs[a - value];
+
+                if (previous != Long.MAX_VALUE && previous + weight < costs[a]) {
+                    costs[a] = previous + weight;
+                    bits[a >> 6] |= 1L << a;
+                }
+            }
+        }
+
+        if (costs[amount] == Long.MAX_VALUE) {
+            return false;
+        }
+
+        Arrays.fill(change, 0);
+        for (int g = groups - 1, a = amount; g >= 0 && a > 0; g--) {
+            if ((taken[g][a >> 6] & 1L << a) != 0) {
+                int i = scratch.groupDenominations[g];
+
+                change[i] += scratch.groupSizes[g];
+                a -= scratch.groupSizes[g] * scaledDenominations[i];
+            }
+        }
+
+        return true;
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    /**
+     * Pairs a table with the weights it was computed for.
+     */
+    private static final class Table {
+        private final long[] weights;
+        private final int[] plans;
+
+        private Table(long[] weights, int[] plans) {
+            this.weights = weights;
+            this.plans = plans;
+        }
+    }
+
+    /**
+     * Reusable, per-thread buffers of the weights and of the bounded dynamic program.
+     */
+    private static final class Scratch {
+        private long[] weights = new long[0];
+        private long[] costs = new long[0];
+        private long[][] taken = new long[0][];
+        private int[] groupDenominations = new int[0];
+        private int[] groupSizes = new int[0];
+
+        private long[] weights(int length) {
+            if (weights.length != length) {
+                weights = new long[length];
+            }
+
+            return weights;
+        }
+
+        private void ensureGroups(int groups, int capacity) {
+            if (costs.length < capacity) {
+                costs = new long[capacity];
+                taken = new long[0][];
+            }
+
+            if (taken.length < groups) {
+                int words = (costs.length >> 6) + 1;
+
+                taken = Arrays.copyOf(taken, max(groups, taken.length * 2));
+                groupDenominations = Arrays.copyOf(groupDenominations, taken.length);
+                groupSizes = Arrays.copyOf(groupSizes, taken.length);
+
+                for (int g = 0; g < taken.length; g++) {
+                    if (taken[g] == null || taken[g].length < words) {
+                        taken[g] = new long[words];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Wraps a set of weights to be used as a key, based on its content rather than its identity.
+     */
+    private static final class WeightsKey {
+        private final long[] weights;
+
+        private WeightsKey(long[] weights) {
+            this.weights = weights;
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(weights);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof WeightsKey && Arrays.equals(weights, ((WeightsKey) obj).weights);
+        }
+    }
+}
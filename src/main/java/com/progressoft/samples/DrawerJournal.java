@@ -0,0 +1,604 @@
+package com.progressoft.samples;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import static com.progressoft.samples.Money.DENOMINATIONS;
+
+/**
+ * Represents a durable drawer, where every operation is recorded in an append-only journal before being applied.
+ * <p>
+ * Each operation is written as a fixed-size binary record (holding the change in banknote counts) into a memory-mapped
+ * window of the journal file, which makes appending a matter of copying a few bytes. An operation only returns once its
+ * record is forced to the storage device, however, records appended by concurrent operations share a single force
+ * (group commit): the first operation to wait forces every record appended so far, holding off for up to
+ * {@link DrawerJournal#GROUP_COMMIT_DELAY_MICROS} while other operations are about to append theirs, unless the group
+ * already holds the group commit size. Operations of a single thread are thus forced one at a time, and never delayed.
+ * <p>
+ * The drawer state is periodically written to a separate snapshot file (atomically replaced), along with the position
+ * of the journal it covers; recovering from the journal (upon {@link DrawerJournal#open(Path)}) only replays the
+ * records following the latest snapshot. A record is only replayed if its checksum is valid and its sequence number
+ * follows the previous one, hence, a torn or lost write ends the recovered journal. Each opening of the journal starts
+ * a new epoch, which is also recorded, so that records left behind by an earlier epoch are never replayed after newer
+ * ones.
+ * <p>
+ * The record layout is that of the predefined denomination set ({@link DenominationSet#JOD}), operations with Money
+ * instances of other sets are rejected.
+ * <p>
+ * This class is thread-safe, operations are serialized up to waiting for their record to be forced.
+ */
+public class DrawerJournal implements Closeable {
+    public static final int DEFAULT_GROUP_COMMIT_SIZE = 64;
+
+    // The longest time a force is held off for the records of concurrent operations
+    public static final long GROUP_COMMIT_DELAY_MICROS = 1_000;
+
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 100_000;
+
+    private static final String JOURNAL_FILE = "journal.bin";
+
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+
+    private static final int JOURNAL_MAGIC = 0x4A524E4C;
+
+    private static final int SNAPSHOT_MAGIC = 0x534E4150;
+
+    // Record layout: sequence (long), epoch (int), operation (int), banknote count changes (int each), checksum (int)
+    private static final int RECORD_PAYLOAD_SIZE = 8 + 4 + 4 + 4 * DENOMINATIONS.length;
+
+    // Records are aligned to 64 bytes, which also makes the journal header a record-sized slot
+    static final int RECORD_SIZE = (RECORD_PAYLOAD_SIZE + 4 + 63) & ~63;
+
+    private static final int HEADER_SIZE = RECORD_SIZE;
+
+    // The size of the mapped window of the journal, records never straddle two windows
+    private static final long WINDOW_SIZE = RECORD_SIZE * (1L << 20);
+
+    // Directories cannot be opened (hence forced) on Windows, where a rename is durable on its own
+    private static final boolean FORCEABLE_DIRECTORIES = !System.getProperty("os.name").startsWith("Windows");
+
+    /**
+     * The kind of operation a journal record holds.
+     */
+    enum Operation {
+        PLUS, MINUS, REFILL
+    }
+
+    private final Path directory;
+
+    private final FileChannel channel;
+
+    private final int groupCommitSize;
+
+    private final int snapshotInterval;
+
+    private final int epoch;
+
+    private final int[] banknotes = new int[DENOMINATIONS.length];
+
+    // Reusable buffers of a single record and of the dispensed change
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private final int[] change = new int[DENOMINATIONS.length];
+
+    private final CRC32 checksum = new CRC32();
+
+    private MappedByteBuffer window;
+
+    private long windowStart = -1;
+
+    private long position;
+
+    // Written under the lock of the journal, read by the operations awaiting their record to be forced
+    private volatile long sequence;
+
+    private long snapshotSequence;
+
+    // Guards the sequence number of the latest forced record, awaited by the operations
+    private final ReentrantLock forceLock = new ReentrantLock();
+    private final Condition forced = forceLock.newCondition();
+
+    private long forcedSequence;
+
+    private boolean forcing;
+
+    // The number of operations about to append a record, for which a force is held off
+    private final AtomicInteger arriving = new AtomicInteger();
+
+    private volatile boolean holdingOff;
+
+    private DrawerJournal(Path directory, FileChannel channel, int groupCommitSize, int snapshotInterval, int epoch) {
+        this.directory = directory;
+        this.channel = channel;
+        this.groupCommitSize = groupCommitSize;
+        this.snapshotInterval = snapshotInterval;
+        this.epoch = epoch;
+    }
+
+    /**
+     * Opens (or creates) the journal within a directory using the default group commit size and snapshot interval, and
+     * recovers the drawer state.
+     *
+     * @param directory The directory holding the journal and snapshot files
+     * @return The recovered {@link DrawerJournal}
+     * @throws IOException If the journal could not be opened or is not a valid journal
+     */
+    public static DrawerJournal open(Path directory) throws IOException {
+        return open(directory, DEFAULT_GROUP_COMMIT_SIZE, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * Opens (or creates) the journal within a directory, and recovers the drawer state.
+     *
+     * @param directory        The directory holding the journal and snapshot files
+     * @param groupCommitSize  The number of records after which a force is no longer held off for concurrent operations
+     * @param snapshotInterval The number of records after which a snapshot is taken
+     * @return The recovered {@link DrawerJournal}
+     * @throws IOException If the journal could not be opened or is not a valid journal
+     */
+    public static DrawerJournal open(Path directory, int groupCommitSize, int snapshotInterval) throws IOException {
+        if (groupCommitSize <= 0) {
+            throw new IllegalArgumentException("Argument groupCommitSize must be a positive integer");
+        }
+
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Argument snapshotInterval must be a positive integer");
+        }
+
+        Files.createDirectories(directory);
+        FileChannel channel = FileChannel.open(directory.resolve(JOURNAL_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            DrawerJournal journal = new DrawerJournal(directory, channel, groupCommitSize, snapshotInterval,
+                    startEpoch(channel));
+            journal.recover();
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the journal header (writing it if the journal is new), and records the start of a new epoch.
+     *
+     * @param channel The channel of the journal file
+     * @return The epoch of the records appended from now on
+     * @throws IOException If the journal is not a valid journal
+     */
+    private static int startEpoch(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        int epoch = 1;
+
+        if (channel.size() >= HEADER_SIZE) {
+            channel.read(header, 0);
+            header.flip();
+
+            if (header.getInt(0) != JOURNAL_MAGIC || header.getInt(4) != DENOMINATIONS.length) {
+                throw new IOException("Invalid journal header");
+            }
+
+            epoch = header.getInt(8) + 1;
+        }
+
+        header.clear();
+        header.putInt(JOURNAL_MAGIC).putInt(DENOMINATIONS.length).putInt(epoch);
+        header.clear();
+        channel.write(header, 0);
+        channel.force(true);
+
+        return epoch;
+    }
+
+    /**
+     * Restores the drawer state from the latest snapshot (if any), then replays the valid records that follow it.
+     *
+     * @throws IOException If the journal could not be read
+     */
+    private void recover() throws IOException {
+        position = HEADER_SIZE;
+        readSnapshot();
+        snapshotSequence = sequence;
+
+        long fileSize = channel.size();
+        int lastEpoch = 0;
+        while (position + RECORD_SIZE <= fileSize && readRecord(position)) {
+            int recordEpoch = record.getInt(8);
+
+            if (record.getLong(0) != sequence + 1 || recordEpoch < lastEpoch || recordEpoch >= epoch) {
+                break;
+            }
+
+            for (int i = 0; i < banknotes.length; i++) {
+                banknotes[i] += record.getInt(16 + 4 * i);
+            }
+
+            lastEpoch = recordEpoch;
+            sequence++;
+            position += RECORD_SIZE;
+        }
+
+        forcedSequence = sequence;
+    }
+
+    /**
+     * Reads the drawer state from the snapshot file, if a valid one exists.
+     *
+     * @throws IOException If the snapshot file could not be read
+     */
+    private void readSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        ByteBuffer snapshot = ByteBuffer.wrap(Files.readAllBytes(file));
+        int payloadSize = 4 + 4 + 8 + 8 + 4 * DENOMINATIONS.length;
+        if (snapshot.capacity() != payloadSize + 4
+                || snapshot.getInt(0) != SNAPSHOT_MAGIC
+                || snapshot.getInt(4) != DENOMINATIONS.length) {
+            return;
+        }
+
+        checksum.reset();
+        checksum.update(snapshot.array(), 0, payloadSize);
+        if ((int) checksum.getValue() != snapshot.getInt(payloadSize)) {
+            return;
+        }
+
+        sequence = snapshot.getLong(8);
+        position = snapshot.getLong(16);
+        for (int i = 0; i < banknotes.length; i++) {
+            banknotes[i] = snapshot.getInt(24 + 4 * i);
+        }
+    }
+
+    /**
+     * Reads a record into the record buffer.
+     *
+     * @param offset The offset of the record within the journal file
+     * @return true if the checksum of the record is valid, otherwise false
+     * @throws IOException If the journal could not be mapped
+     */
+    private boolean readRecord(long offset) throws IOException {
+        MappedByteBuffer mapped = map(offset);
+        mapped.position((int) (offset - windowStart));
+        mapped.get(record.array());
+
+        checksum.reset();
+        checksum.update(record.array(), 0, RECORD_PAYLOAD_SIZE);
+        return (int) checksum.getValue() == record.getInt(RECORD_PAYLOAD_SIZE);
+    }
+
+    /**
+     * Maps the window of the journal file holding an offset, unless it is already mapped.
+     *
+     * @param offset The offset within the journal file
+     * @return The mapped window
+     * @throws IOException If the journal could not be mapped
+     */
+    private MappedByteBuffer map(long offset) throws IOException {
+        long start = offset - offset % WINDOW_SIZE;
+
+        if (start != windowStart) {
+            // Records pending within the previous window must not be left behind by the next force
+            force();
+
+            window = channel.map(FileChannel.MapMode.READ_WRITE, start, WINDOW_SIZE);
+            windowStart = start;
+        }
+
+        return window;
+    }
+
+    /**
+     * Adds the banknotes of a Money instance to the drawer (e.g. inserted by a customer).
+     *
+     * @param money The banknotes to add
+     * @throws IOException              If the operation could not be recorded
+     * @throws IllegalArgumentException If the Money instance belongs to another denomination set than JOD
+     */
+    public void plus(Money money) throws IOException {
+        awaitForced(record(Operation.PLUS, money));
+    }
+
+    /**
+     * Refills the drawer with the banknotes of a Money instance.
+     *
+     * @param money The banknotes to add
+     * @throws IOException              If the operation could not be recorded
+     * @throws IllegalArgumentException If the Money instance belongs to another denomination set than JOD
+     */
+    public void refill(Money money) throws IOException {
+        awaitForced(record(Operation.REFILL, money));
+    }
+
+    /**
+     * Dispenses an amount of change from the drawer.
+     * <p>
+     * Similar to {@link Money#minus(Money)}, 'amount' is treated as a single decimal value rather than a collection of
+     * banknotes.
+     *
+     * @param amount The amount of change to dispense
+     * @return A {@link Money} instance holding the dispensed banknotes
+     * @throws InsufficientChangeException If there is insufficient change, in which case nothing is recorded
+     * @throws IOException                 If the operation could not be recorded
+     * @throws IllegalArgumentException    If the amount belongs to another denomination set than JOD
+     */
+    public Money minus(Money amount) throws IOException {
+        DenominationSet.JOD.check(amount);
+
+        Money dispensed;
+        long recorded;
+
+        arriving.incrementAndGet();
+        try {
+            synchronized (this) {
+                if (!Money.CHANGE_MAKER.makeChange(banknotes, amount.amountInPiasters(), change)) {
+                    throw new InsufficientChangeException(DenominationSet.JOD, banknotes, amount.amountInPiasters());
+                }
+
+                dispensed = Money.fromBanknotes(change);
+                recorded = append(Operation.MINUS, dispensed, -1);
+            }
+        } finally {
+            arrived();
+        }
+
+        awaitForced(recorded);
+
+        return dispensed;
+    }
+
+    /**
+     * Appends the record of banknotes added to the drawer, without awaiting it to be forced.
+     *
+     * @param operation The kind of operation
+     * @param money     The banknotes to add
+     * @return The sequence number of the record
+     * @throws IOException If the record could not be written
+     */
+    private long record(Operation operation, Money money) throws IOException {
+        arriving.incrementAndGet();
+        try {
+            synchronized (this) {
+                return append(operation, money, 1);
+            }
+        } finally {
+            arrived();
+        }
+    }
+
+    /**
+     * Marks an operation as done appending its record, which wakes up a force held off for it.
+     */
+    private void arrived() {
+        arriving.decrementAndGet();
+
+        if (holdingOff) {
+            forceLock.lock();
+            try {
+                forced.signalAll();
+            } finally {
+                forceLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes a record to the journal, then applies it to the drawer.
+     *
+     * @param operation The kind of operation
+     * @param money     The banknotes of the operation
+     * @param sign      1 if the banknotes are added to the drawer, -1 if they are removed
+     * @return The sequence number of the record
+     * @throws IOException If the record could not be written
+     */
+    private long append(Operation operation, Money money, int sign) throws IOException {
+        DenominationSet.JOD.check(money);
+
+        record.clear();
+        record.putLong(sequence + 1).putInt(epoch).putInt(operation.ordinal());
+        for (int i = 0; i < banknotes.length; i++) {
+            record.putInt(sign * money.count(i));
+        }
+
+        checksum.reset();
+        checksum.update(record.array(), 0, RECORD_PAYLOAD_SIZE);
+        record.putInt((int) checksum.getValue());
+
+        MappedByteBuffer mapped = map(position);
+        mapped.position((int) (position - windowStart));
+        mapped.put(record.array());
+
+        for (int i = 0; i < banknotes.length; i++) {
+            banknotes[i] += sign * money.count(i);
+        }
+
+        position += RECORD_SIZE;
+        sequence++;
+
+        if (sequence - snapshotSequence >= snapshotInterval) {
+            snapshot();
+        }
+
+        return sequence;
+    }
+
+    /**
+     * Waits until a record is forced to the storage device, forcing it (along with every record appended so far) unless
+     * another operation already does.
+     *
+     * @param recorded The sequence number of the record
+     * @throws InterruptedIOException If interrupted while waiting, in which case the record may not be durable yet
+     */
+    private void awaitForced(long recorded) throws InterruptedIOException {
+        long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(GROUP_COMMIT_DELAY_MICROS);
+
+        forceLock.lock();
+        try {
+            while (forcedSequence < recorded) {
+                long delay = deadline - System.nanoTime();
+
+                if (forcing) {
+                    forced.await();
+                } else if (arriving.get() > 0 && sequence - forcedSequence < groupCommitSize && delay > 0) {
+                    // Hold off the force while concurrent operations are about to join the group
+                    holdingOff = true;
+                    forced.awaitNanos(delay);
+                    holdingOff = false;
+                } else {
+                    forceGroup();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while awaiting the journal to be forced");
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    /**
+     * Forces every record appended so far, on behalf of the operations waiting for it; called holding the force lock,
+     * which is released while forcing so that the next group gathers meanwhile.
+     */
+    private void forceGroup() {
+        forcing = true;
+        forceLock.unlock();
+
+        long covered = -1;
+        try {
+            MappedByteBuffer forcedWindow;
+            synchronized (this) {
+                forcedWindow = window;
+                covered = sequence;
+            }
+
+            // Records of earlier windows were forced before their window was left behind (see 'map')
+            if (forcedWindow != null) {
+                forcedWindow.force();
+            }
+        } finally {
+            forceLock.lock();
+            forcing = false;
+            forcedSequence = Math.max(forcedSequence, covered);
+            forced.signalAll();
+        }
+    }
+
+    /**
+     * Forces the records appended so far to the storage device, holding the lock of the journal.
+     */
+    private void force() {
+        if (window != null) {
+            window.force();
+        }
+
+        long covered = sequence;
+
+        forceLock.lock();
+        try {
+            forcedSequence = Math.max(forcedSequence, covered);
+            forced.signalAll();
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    /**
+     * Forces the records appended so far to the storage device; every operation already does so before returning.
+     *
+     * @throws InterruptedIOException If interrupted while waiting for the records to be forced
+     */
+    public void commit() throws InterruptedIOException {
+        awaitForced(sequence);
+    }
+
+    /**
+     * Writes the drawer state to the snapshot file (atomically replacing the previous one), which bounds the records
+     * replayed upon recovery.
+     *
+     * @throws IOException If the snapshot could not be written
+     */
+    public synchronized void snapshot() throws IOException {
+        force();
+
+        int payloadSize = 4 + 4 + 8 + 8 + 4 * DENOMINATIONS.length;
+        ByteBuffer snapshot = ByteBuffer.allocate(payloadSize + 4);
+        snapshot.putInt(SNAPSHOT_MAGIC).putInt(DENOMINATIONS.length).putLong(sequence).putLong(position);
+        for (int banknote : banknotes) {
+            snapshot.putInt(banknote);
+        }
+
+        checksum.reset();
+        checksum.update(snapshot.array(), 0, payloadSize);
+        snapshot.putInt((int) checksum.getValue());
+        snapshot.flip();
+
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (snapshot.hasRemaining()) {
+                file.write(snapshot);
+            }
+            file.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // The rename itself is only durable once the directory is forced
+        if (FORCEABLE_DIRECTORIES) {
+            try (FileChannel file = FileChannel.open(directory, StandardOpenOption.READ)) {
+                file.force(true);
+            }
+        }
+
+        snapshotSequence = sequence;
+    }
+
+    /**
+     * Fetches the sequence number of the latest record.
+     *
+     * @return The number of records appended to the journal
+     */
+    public long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Creates an immutable snapshot of the drawer.
+     *
+     * @return A new {@link Money} instance holding the current banknotes of the drawer
+     */
+    public synchronized Money toMoney() {
+        return Money.fromBanknotes(banknotes);
+    }
+
+    /**
+     * Forces the records appended so far and closes the journal.
+     *
+     * @throws IOException If the journal could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        commit();
+
+        synchronized (this) {
+            channel.close();
+        }
+    }
+}
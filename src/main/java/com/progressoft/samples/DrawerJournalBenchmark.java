@@ -0,0 +1,118 @@
+package com.progressoft.samples;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.progressoft.samples.Money.*;
+
+
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 3, time = 1)
+@Fork(1)
+public class DrawerJournalBenchmark {
+    /**
+     * An open journal in a temporary directory, records are appended to it while measuring.
+     */
+    @State(Scope.Benchmark)
+    public static class Appending {
+        @Param({"1", "64", "1024"})
+        public int groupCommitSize;
+
+        private Path directory;
+
+        private DrawerJournal journal;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            directory = Files.createTempDirectory("journal");
+            journal = DrawerJournal.open(directory, groupCommitSize, DrawerJournal.DEFAULT_SNAPSHOT_INTERVAL);
+            journal.refill(TenPiasters.times(1_000));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            journal.close();
+            delete(directory);
+        }
+    }
+
+    /**
+     * A large journal in a temporary directory, written before measuring, either with a snapshot near its end or
+     * without any snapshot at all (which replays the whole journal).
+     */
+    @State(Scope.Benchmark)
+    public static class Recovering {
+        @Param({"1000000"})
+        public int records;
+
+        @Param({"false", "true"})
+        public boolean snapshotted;
+
+        private Path directory;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            directory = Files.createTempDirectory("journal");
+
+            int snapshotInterval = snapshotted ? records - 1_000 : Integer.MAX_VALUE;
+            // Written by concurrent threads so that records share forces, as each operation awaits its own force
+            try (DrawerJournal journal = DrawerJournal.open(directory, 1024, snapshotInterval)) {
+                IntStream.range(0, records / 2).parallel().forEach(i -> {
+                    try {
+                        journal.plus(OneDinar);
+                        journal.minus(OneDinar);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            delete(directory);
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    /**
+     * Benchmarks the number of durable records appended per second by concurrent threads, for various group commit
+     * sizes.
+     * <p>
+     * Each operation appends two records, a sale (a dinar inserted) followed by its change (a dinar dispensed).
+     */
+    @Benchmark
+    @Threads(8)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(2)
+    public Money benchmarkAppend(Appending appending) throws IOException {
+        appending.journal.plus(OneDinar);
+        return appending.journal.minus(OneDinar);
+    }
+
+    /**
+     * Benchmarks the time taken to recover a drawer from a journal of a million records.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Money benchmarkRecovery(Recovering recovering) throws IOException {
+        try (DrawerJournal journal = DrawerJournal.open(recovering.directory)) {
+            return journal.toMoney();
+        }
+    }
+}
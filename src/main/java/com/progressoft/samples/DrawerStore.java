@@ -0,0 +1,236 @@
+package com.progressoft.samples;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Holds the drawers of a fleet of machines, addressed by machine index, outside of the Java heap.
+ * <p>
+ * The banknote counts are stored column by column, one direct buffer per denomination holding the count of every
+ * machine, hence, a drawer costs 4 bytes per denomination regardless of its content, and scanning a single denomination
+ * across the fleet reads contiguous memory. Operations follow the semantics of {@link Money}, updating the addressed
+ * drawer in place; {@link DrawerStore#toMoney(int)} turns a drawer into a {@link Money} instance when needed. All the
+ * drawers of a store hold the banknotes of a single {@link DenominationSet}.
+ * <p>
+ * Operations on the same machine must not run concurrently, operations on distinct machines may.
+ */
+public class DrawerStore {
+    private final DenominationSet denominationSet;
+
+    private final int machines;
+
+    // The banknote counts of every machine, indexed by denomination then machine
+    private final IntBuffer[] columns;
+
+    // Per-thread buffers of the available banknotes and of the change of a single drawer
+    private final ThreadLocal<int[]> available;
+    private final ThreadLocal<int[]> change;
+
+    /**
+     * Constructs a new DrawerStore of empty drawers of the predefined denomination set ({@link DenominationSet#JOD}).
+     *
+     * @param machines The number of machines
+     * @throws IllegalArgumentException If machines is negative
+     */
+    public DrawerStore(int machines) {
+        this(DenominationSet.JOD, machines);
+    }
+
+    /**
+     * Constructs a new DrawerStore of empty drawers.
+     *
+     * @param denominationSet The denomination set of the banknotes of the drawers
+     * @param machines        The number of machines
+     * @throws IllegalArgumentException If machines is negative
+     */
+    public DrawerStore(DenominationSet denominationSet, int machines) {
+        if (machines < 0) {
+            throw new IllegalArgumentException("Argument machines must be a non-negative integer");
+        }
+
+        this.denominationSet = denominationSet;
+        this.machines = machines;
+        this.columns = new IntBuffer[denominationSet.size()];
+        this.available = ThreadLocal.withInitial(() -> new int[denominationSet.size()]);
+        this.change = ThreadLocal.withInitial(() -> new int[denominationSet.size()]);
+
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = ByteBuffer.allocateDirect(machines * Integer.BYTES)
+                    .order(ByteOrder.nativeOrder())
+                    .asIntBuffer();
+        }
+    }
+
+    /**
+     * Fetches the denomination set of the drawers of this store.
+     *
+     * @return The {@link DenominationSet} of the banknotes of the drawers
+     */
+    public DenominationSet denominationSet() {
+        return denominationSet;
+    }
+
+    /**
+     * Fetches the number of machines.
+     *
+     * @return The number of drawers held by this store
+     */
+    public int size() {
+        return machines;
+    }
+
+    /**
+     * Calculates the memory held outside of the Java heap by this store.
+     *
+     * @return The number of off-heap bytes
+     */
+    public long offHeapBytes() {
+        return (long) machines * Integer.BYTES * columns.length;
+    }
+
+    /**
+     * Calculates the total amount within the drawer of a machine.
+     *
+     * @param machine The machine index
+     * @return the total amount as a double
+     */
+    public double amount(int machine) {
+        return amountInPiasters(machine) / (double) denominationSet.unitsPerMajor();
+    }
+
+    /**
+     * Calculates the exact total amount within the drawer of a machine.
+     *
+     * @param machine The machine index
+     * @return the total amount in piasters (in minor units of the denomination set, for other sets than JOD)
+     */
+    public long amountInPiasters(int machine) {
+        long sum = 0;
+
+        for (int i = 0; i < columns.length; i++) {
+            sum += denominationSet.denomination(i) * columns[i].get(machine);
+        }
+
+        return sum;
+    }
+
+    /**
+     * Adds the banknotes of a Money instance to the drawer of a machine, as {@link Money#plus(Money)}.
+     *
+     * @param machine The machine index
+     * @param money   The banknotes to add
+     * @throws IllegalArgumentException If the Money instance belongs to another denomination set
+     */
+    public void plus(int machine, Money money) {
+        denominationSet.check(money);
+
+        for (int i = 0; i < columns.length; i++) {
+            int count = money.count(i);
+
+            if (count != 0) {
+                columns[i].put(machine, columns[i].get(machine) + count);
+            }
+        }
+    }
+
+    /**
+     * Subtracts an amount of change from the drawer of a machine, as {@link Money#minus(Money)}.
+     *
+     * @param machine The machine index
+     * @param amount  The amount of change to subtract
+     * @throws InsufficientChangeException If there is insufficient change, in which case the drawer is left unchanged
+     * @throws IllegalArgumentException    If the amount belongs to another denomination set
+     */
+    public void minus(int machine, Money amount) {
+        if (!tryMinus(machine, amount)) {
+            throw new InsufficientChangeException(
+                    denominationSet, available.get(), amount.amountInPiasters()
+            );
+        }
+    }
+
+    /**
+     * Subtracts an amount of change from the drawer of a machine, if possible, as {@link Money#tryMinus(Money)}.
+     *
+     * @param machine The machine index
+     * @param amount  The amount of change to subtract
+     * @return true if the change was subtracted, otherwise false, in which case the drawer is left unchanged
+     * @throws IllegalArgumentException If the amount belongs to another denomination set
+     */
+    public boolean tryMinus(int machine, Money amount) {
+        denominationSet.check(amount);
+
+        int[] available = this.available.get();
+        int[] change = this.change.get();
+
+        for (int i = 0; i < columns.length; i++) {
+            available[i] = columns[i].get(machine);
+        }
+
+        if (!denominationSet.changeMaker().makeChange(available, amount.amountInPiasters(), change)) {
+            return false;
+        }
+
+        for (int i = 0; i < columns.length; i++) {
+            if (change[i] != 0) {
+                columns[i].put(machine, available[i] - change[i]);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Replaces the drawer of a machine with the banknotes of a Money instance.
+     *
+     * @param machine The machine index
+     * @param money   The new banknotes of the drawer
+     * @throws IllegalArgumentException If the Money instance belongs to another denomination set
+     */
+    public void set(int machine, Money money) {
+        denominationSet.check(money);
+
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].put(machine, money.count(i));
+        }
+    }
+
+    /**
+     * Creates an immutable snapshot of the drawer of a machine.
+     *
+     * @param machine The machine index
+     * @return A new {@link Money} instance holding the current banknotes of the drawer
+     */
+    public Money toMoney(int machine) {
+        int[] banknotes = new int[columns.length];
+
+        for (int i = 0; i < columns.length; i++) {
+            banknotes[i] = columns[i].get(machine);
+        }
+
+        return Money.wrap(denominationSet, banknotes);
+    }
+
+    /**
+     * Calculates the total amount across the drawers of all machines.
+     *
+     * @return the total amount in piasters (in minor units of the denomination set, for other sets than JOD)
+     */
+    public long totalInPiasters() {
+        long sum = 0;
+
+        for (int i = 0; i < columns.length; i++) {
+            long count = 0;
+            IntBuffer column = columns[i];
+
+            for (int machine = 0; machine < machines; machine++) {
+                count += column.get(machine);
+            }
+
+            sum += denominationSet.denomination(i) * count;
+        }
+
+        return sum;
+    }
+}
@@ -0,0 +1,138 @@
+package com.progressoft.samples;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.progressoft.samples.Money.*;
+
+
+@State(Scope.Thread)
+@Measurement(iterations = 10, time = 1)
+@Warmup(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DrawerStoreBenchmark {
+    private static final Money INITIAL = FiftyPiasters.times(200).plus(TwentyFivePiasters.times(400));
+
+    // A customer inserts a dinar in coins and receives the same amount back, which keeps the drawers balanced
+    private static final Money INSERTED = FiftyPiasters.plus(TwentyFivePiasters).plus(TwentyFivePiasters);
+
+    @Param({"10000", "100000", "1000000"})
+    public int machines;
+
+    private DrawerStore store;
+
+    private Money[] drawers;
+
+    private int machine;
+
+    @Setup
+    public void setup() {
+        store = buildStore();
+        drawers = buildHeap();
+    }
+
+    private DrawerStore buildStore() {
+        DrawerStore result = new DrawerStore(machines);
+
+        for (int i = 0; i < machines; i++) {
+            result.set(i, INITIAL);
+        }
+
+        return result;
+    }
+
+    private Money[] buildHeap() {
+        Money[] result = new Money[machines];
+
+        // Each machine holds its own instance, as drawers of a fleet diverge over time
+        for (int i = 0; i < machines; i++) {
+            result[i] = new CashDrawer(INITIAL).toMoney();
+        }
+
+        return result;
+    }
+
+    private int nextMachine() {
+        machine = machine + 1 == machines ? 0 : machine + 1;
+        return machine;
+    }
+
+    /**
+     * Benchmarks building the drawers of the whole fleet in a {@link DrawerStore}.
+     * <p>
+     * The store lives outside of the Java heap, hence, the GC profiler only reports its (constant) bookkeeping, while
+     * {@link DrawerStore#offHeapBytes()} amounts to 40 bytes per machine.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public DrawerStore benchmarkBuildStore() {
+        return buildStore();
+    }
+
+    /**
+     * Benchmarks building the drawers of the whole fleet as an array of {@link Money}, the GC profiler reports the heap
+     * they take (gc.alloc.rate.norm).
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Money[] benchmarkBuildHeap() {
+        return buildHeap();
+    }
+
+    /**
+     * Benchmarks a sale (banknotes inserted, then change dispensed) on the drawer of a machine in a
+     * {@link DrawerStore}.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public DrawerStore benchmarkSaleStore() {
+        int index = nextMachine();
+
+        store.plus(index, INSERTED);
+        store.minus(index, OneDinar);
+        return store;
+    }
+
+    /**
+     * Benchmarks a sale (banknotes inserted, then change dispensed) on the drawer of a machine held as {@link Money}.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Money[] benchmarkSaleHeap() {
+        int index = nextMachine();
+
+        drawers[index] = drawers[index].plus(INSERTED).minus(OneDinar);
+        return drawers;
+    }
+
+    /**
+     * Benchmarks totalling the drawers of the whole fleet in a {@link DrawerStore}.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long benchmarkTotalStore() {
+        return store.totalInPiasters();
+    }
+
+    /**
+     * Benchmarks totalling the drawers of the whole fleet held as {@link Money}.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long benchmarkTotalHeap() {
+        long sum = 0;
+
+        for (Money drawer : drawers) {
+            sum += drawer.amountInPiasters();
+        }
+
+        return sum;
+    }
+}
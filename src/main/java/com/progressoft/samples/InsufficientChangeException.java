@@ -0,0 +1,89 @@
+package com.progressoft.samples;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+/**
+ * Thrown when a deduction cannot be performed because no combination of the available banknotes makes up the exact
+ * change.
+ * <p>
+ * Insufficient change is an expected outcome under load rather than a programming error, hence, this exception does not
+ * capture a stack trace, which makes throwing it considerably cheaper. Callers that expect it regularly should prefer
+ * {@link Money#tryMinus(Money)}, which does not throw at all.
+ * <p>
+ * The shortfall is only computed once asked for through {@link InsufficientChangeException#shortfall()}, as doing so
+ * may take a dynamic program over the whole amount of change.
+ */
+public class InsufficientChangeException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    // Marks the shortfall as not computed yet
+    private static final long UNKNOWN_SHORTFALL = -1;
+
+    // The number of minor units in a major unit of the denomination set (e.g. 100 piasters in a dinar)
+    private final long unitsPerMajor;
+
+    // The banknotes and the amount of the failed deduction, dropped once the shortfall is computed
+    private transient ChangeMaker changeMaker;
+    private transient int[] available;
+    private transient long amount;
+
+    private long shortfall;
+
+    /**
+     * Constructs a new InsufficientChangeException.
+     *
+     * @param denominationSet The denomination set of the banknotes
+     * @param shortfall       The missing amount in minor units, see {@link InsufficientChangeException#shortfall()}
+     */
+    InsufficientChangeException(DenominationSet denominationSet, long shortfall) {
+        super("Could not perform deduction; insufficient change");
+        this.unitsPerMajor = denominationSet.unitsPerMajor();
+        this.shortfall = shortfall;
+    }
+
+    /**
+     * Constructs a new InsufficientChangeException whose shortfall is computed once asked for.
+     *
+     * @param denominationSet The denomination set of the banknotes
+     * @param available       The available banknote counts, indexed by denomination, copied into the exception
+     * @param amount          The amount of change that could not be given in minor units
+     */
+    InsufficientChangeException(DenominationSet denominationSet, int[] available, long amount) {
+        this(denominationSet, UNKNOWN_SHORTFALL);
+        this.changeMaker = denominationSet.changeMaker();
+        this.available = available.clone();
+        this.amount = amount;
+    }
+
+    /**
+     * Fetches the missing amount, that is, the difference between the requested change and the largest amount not
+     * exceeding it that could have been given exactly.
+     *
+     * @return the missing amount as a double, in major units of the denomination set (e.g. dinars)
+     */
+    public double shortfall() {
+        return shortfallInMinorUnits() / (double) unitsPerMajor;
+    }
+
+    private synchronized long shortfallInMinorUnits() {
+        if (shortfall == UNKNOWN_SHORTFALL) {
+            shortfall = changeMaker.shortfall(available, amount);
+            changeMaker = null;
+            available = null;
+        }
+
+        return shortfall;
+    }
+
+    // The banknotes are not serialized, hence, the shortfall is computed beforehand
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        shortfallInMinorUnits();
+        out.defaultWriteObject();
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -1,12 +1,7 @@
 package com.progressoft.samples;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.Arrays;
-import java.util.Map;
-import java.util.Objects;
-import java.util.TreeMap;
-import java.util.stream.Collectors;
+import java.util.Collection;
 
 import static java.lang.Math.abs;
 import static java.lang.Math.min;
@@ -15,14 +10,18 @@ import static java.lang.Math.min;
  * Represents monetary values with count, can store multiple banknote types with indefinite count
  * (restricted to{@link Integer} constraints).
  * <p>
- * This class internally uses {@link BigDecimal} for precise decimal point representations (due to sensitive monetary
- * data) and {@link TreeMap} to maintain a sorted order of banknotes (based on the default compareTo method within
- * {@link BigDecimal}).
+ * This class internally stores the banknote counts in a primitive array indexed by denomination (sorted by ascending
+ * banknote value, see {@link DenominationSet}), and performs all arithmetic on exact amounts in minor units (piasters
+ * for the Jordanian dinar) held as {@code long} (due to sensitive monetary data). The predefined values belong to
+ * {@link DenominationSet#JOD}; operations between values of different denomination sets are rejected.
  * <p>
  */
-public class Money {
+public class Money implements Comparable<Money> {
+    // Banknote values of the predefined values in piasters, sorted ascending (see DenominationSet.JOD)
+    static final long[] DENOMINATIONS = DenominationSet.JOD.denominations();
+
     // Define a list of predetermined monetary values
-    public static final Money Zero = new Money(00.00, 1);
+    public static final Money Zero = DenominationSet.JOD.zero();
     public static final Money OnePiaster = new Money(00.01, 1);
     public static final Money FivePiasters = new Money(00.05, 1);
     public static final Money TenPiasters = new Money(00.10, 1);
@@ -34,14 +33,21 @@ public class Money {
     public static final Money TwentyDinars = new Money(20.00, 1);
     public static final Money FiftyDinars = new Money(50.00, 1);
 
-    private final TreeMap<BigDecimal, Integer> banknotes;
+    static final ChangeMaker CHANGE_MAKER = DenominationSet.JOD.changeMaker();
+
+    private final DenominationSet denominationSet;
+
+    private final int[] banknotes;
+
+    // The total value in minor units (piasters for JOD), computed once since the banknotes never change
+    private final long piasters;
 
     /**
      * Constructs a new Money object with a specified banknote value and count.
      *
      * @param value The value of the banknote
      * @param count The number of banknotes
-     * @throws IllegalArgumentException If either value or count is negative
+     * @throws IllegalArgumentException If either value or count is negative, or if value is not a known banknote
      */
     private Money(double value, int count) {
         if (value < 0) {
@@ -52,31 +58,126 @@ public class Money {
             throw new IllegalArgumentException("Argument count must be a non-negative integer");
         }
 
-        this.banknotes = new TreeMap<>();
-        this.banknotes.put(BigDecimal.valueOf(value), count);
+        this.denominationSet = DenominationSet.JOD;
+        this.banknotes = new int[DENOMINATIONS.length];
+
+        // A zero-valued banknote carries no value, hence it is represented as an empty set of banknotes
+        long banknoteValue = Math.round(value * 100);
+        if (banknoteValue != 0) {
+            this.banknotes[indexOf(banknoteValue)] = count;
+        }
+
+        this.piasters = getBanknotesSum(banknotes);
+    }
+
+    /**
+     * Constructs a new Money object given an array of banknote counts, indexed by denomination.
+     * <p>
+     * The array is adopted as is (not copied), callers must not modify it afterwards.
+     *
+     * @param denominationSet The denomination set of the banknotes
+     * @param banknotes       An array having the index as the banknote denomination and the value as the respective
+     *                        banknote counts
+     */
+    private Money(DenominationSet denominationSet, int[] banknotes) {
+        this.denominationSet = denominationSet;
+        this.banknotes = banknotes;
+        this.piasters = getBanknotesSum(banknotes);
+    }
+
+    /**
+     * Creates a Money object from an array of banknote counts, indexed by denomination.
+     *
+     * @param banknotes The banknote counts, copied into the new object
+     * @return A new {@link Money} instance holding the given banknotes
+     */
+    static Money fromBanknotes(int[] banknotes) {
+        return fromBanknotes(DenominationSet.JOD, banknotes);
+    }
+
+    /**
+     * Creates a Money object of a denomination set from an array of banknote counts, indexed by denomination.
+     *
+     * @param denominationSet The denomination set of the banknotes
+     * @param banknotes       The banknote counts, copied into the new object
+     * @return A new {@link Money} instance holding the given banknotes
+     */
+    static Money fromBanknotes(DenominationSet denominationSet, int[] banknotes) {
+        return new Money(denominationSet, banknotes.clone());
+    }
+
+    /**
+     * Creates a Money object adopting an array of banknote counts, indexed by denomination.
+     *
+     * @param banknotes The banknote counts, adopted as is (not copied); callers must not modify it afterwards
+     * @return A new {@link Money} instance holding the given banknotes
+     */
+    static Money wrap(int[] banknotes) {
+        return wrap(DenominationSet.JOD, banknotes);
     }
 
     /**
-     * Constructs a new Money object given a map of banknote values and their respective count.
+     * Creates a Money object of a denomination set adopting an array of banknote counts, indexed by denomination.
      *
-     * @param banknotes A map having the key as the banknote monetary value and the value as the respective banknote
-     *                  counts
+     * @param denominationSet The denomination set of the banknotes
+     * @param banknotes       The banknote counts, adopted as is (not copied); callers must not modify it afterwards
+     * @return A new {@link Money} instance holding the given banknotes
      */
-    private Money(Map<BigDecimal, Integer> banknotes) {
-        this.banknotes = new TreeMap<>();
-        this.banknotes.putAll(banknotes);
+    static Money wrap(DenominationSet denominationSet, int[] banknotes) {
+        return new Money(denominationSet, banknotes);
     }
 
     /**
-     * Calculates the sum of the values for a given map.
+     * Fetches the denomination set of this Money instance.
      *
-     * @param map The map to calculate the sum of the values
-     * @return The total value as a {@link BigDecimal}
+     * @return The {@link DenominationSet} the banknotes of this instance belong to
      */
-    private BigDecimal getMapValuesSum(Map<BigDecimal, Integer> map) {
-        return map.entrySet().stream()
-                .map(entry -> entry.getKey().multiply(BigDecimal.valueOf(entry.getValue())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    public DenominationSet denominationSet() {
+        return denominationSet;
+    }
+
+    /**
+     * Fetches the number of banknotes of a denomination.
+     *
+     * @param index The denomination index within the denomination set of this instance
+     * @return The number of banknotes of the given denomination
+     */
+    int count(int index) {
+        return banknotes[index];
+    }
+
+    /**
+     * Finds the denomination index of a banknote value.
+     *
+     * @param piasters The banknote value in piasters
+     * @return The index of the banknote within {@link Money#DENOMINATIONS}
+     * @throws IllegalArgumentException If the value is not a known banknote
+     */
+    private static int indexOf(long piasters) {
+        int index = DenominationSet.JOD.indexOf(piasters);
+
+        if (index < 0) {
+            throw new IllegalArgumentException("Argument value must be a valid banknote");
+        }
+
+        return index;
+    }
+
+    /**
+     * Calculates the total value in minor units for a given array of banknote counts of the set of this instance.
+     *
+     * @param banknotes The banknote counts to calculate the total value of
+     * @return The total value in minor units
+     */
+    private long getBanknotesSum(int[] banknotes) {
+        long[] denominations = denominationSet.denominations();
+        long sum = 0;
+
+        for (int i = 0; i < banknotes.length; i++) {
+            sum += denominations[i] * banknotes[i];
+        }
+
+        return sum;
     }
 
     /**
@@ -85,26 +186,37 @@ public class Money {
      * @return the total amount as a double
      */
     public double amount() {
-        return getMapValuesSum(banknotes).doubleValue();
+        return piasters / (double) denominationSet.unitsPerMajor();
+    }
+
+    /**
+     * Fetches the exact total amount for this Money instance, computed once upon construction.
+     *
+     * @return the total amount in piasters (in minor units of the denomination set, for other sets than JOD)
+     */
+    public long amountInPiasters() {
+        return piasters;
     }
 
     /**
      * Multiplies the monetary value of this Money instance by a specified number.
      *
      * @param count The multiplier
-     * @return A new {@link Money} instance with the result of the multiplication
+     * @return A {@link Money} instance with the result of the multiplication, possibly shared (see {@link MoneyCache})
      * @throws IllegalArgumentException If count is negative
      */
     public Money times(int count) {
-        Map<BigDecimal, Integer> result = new TreeMap<>(banknotes);
-
         if (count < 0) {
             throw new IllegalArgumentException("Argument count must be a non-negative integer");
         }
 
-        result.replaceAll((k, v) -> v * count);
+        int[] result = MoneyCache.scratch(denominationSet);
 
-        return new Money(result);
+        for (int i = 0; i < result.length; i++) {
+            result[i] = banknotes[i] * count;
+        }
+
+        return MoneyCache.intern(denominationSet, result);
     }
 
     /**
@@ -112,23 +224,62 @@ public class Money {
      *
      * @param items The Money instances to sum to
      * @return A new {@link Money} Instance representing the total sum of all provided money objects
+     * @throws ArithmeticException      If the total count of a banknote exceeds {@link Integer} constraints
+     * @throws IllegalArgumentException If the items belong to different denomination sets
      */
     public static Money sum(Money... items) {
-        return Arrays.stream(items).reduce(Money.Zero, Money::plus);
+        if (items.length == 0) {
+            return Zero;
+        }
+
+        DenominationSet denominationSet = items[0].denominationSet;
+        int[] result = new int[denominationSet.size()];
+
+        // Accumulate in place rather than creating an intermediate object per item
+        for (Money item : items) {
+            denominationSet.check(item);
+
+            for (int i = 0; i < result.length; i++) {
+                result[i] = Math.addExact(result[i], item.banknotes[i]);
+            }
+        }
+
+        return new Money(denominationSet, result);
+    }
+
+    /**
+     * Sums a collection of Money instances, in parallel for large collections (see {@link MoneyAggregation}).
+     *
+     * @param items The Money instances to sum to
+     * @return A new {@link Money} Instance representing the total sum of all provided money objects
+     * @throws ArithmeticException      If the total count of a banknote exceeds {@link Integer} constraints
+     * @throws IllegalArgumentException If the items belong to different denomination sets
+     */
+    public static Money sum(Collection<Money> items) {
+        return MoneyAggregation.sum(items);
     }
 
     /**
      * Sums two Money instances.
      *
      * @param other The Money instance to add to
-     * @return a new {@link Money} Instance representing the sum of the money param object with this object
+     * @return a {@link Money} Instance representing the sum of the money param object with this object, possibly shared
+     * (see {@link MoneyCache})
+     * @throws IllegalArgumentException If the money param object belongs to another denomination set
      */
     public Money plus(Money other) {
-        Map<BigDecimal, Integer> result = new TreeMap<>(banknotes);
+        long start = MoneyMetrics.start();
+        denominationSet.check(other);
+        int[] result = MoneyCache.scratch(denominationSet);
 
-        other.banknotes.forEach((key, value) -> result.merge(key, value, Integer::sum));
+        for (int i = 0; i < result.length; i++) {
+            result[i] = banknotes[i] + other.banknotes[i];
+        }
+
+        Money sum = MoneyCache.intern(denominationSet, result);
+        MoneyMetrics.record(MoneyMetrics.Operation.PLUS, start);
 
-        return new Money(result);
+        return sum;
     }
 
     /**
@@ -136,41 +287,106 @@ public class Money {
      * <p>
      * Unlike {@link Money#minusComplex(Money)}, this method relaxes the constraint where the banknotes 'other' has to
      * be exact, that is, 'other' is treated as a single decimal value rather than a collection of banknotes.
+     * <p>
+     * The change is dispatched greedily starting from the largest banknote whenever possible, otherwise, any exact
+     * combination of the available banknotes is used (see {@link ChangeMaker}).
      *
      * @param other The Money instance to subtract from
      * @return A new {@link Money} Instance representing the subtraction of the money param object from this object
-     * @throws IllegalArgumentException If there is insufficient change to perform the subtraction
+     * @throws InsufficientChangeException If there is insufficient change to perform the subtraction
+     * @throws IllegalArgumentException    If the money param object belongs to another denomination set
      */
     public Money minus(Money other) {
-        Map<BigDecimal, Integer> result = new TreeMap<>(banknotes);
+        Money result = tryMinus(other);
 
-        // Get the numeric value of 'other' (The type of banknotes received should be irrelevant)
-        BigDecimal totalDeductible = BigDecimal.valueOf(other.amount());
+        if (result == null) {
+            throw new InsufficientChangeException(denominationSet, banknotes, other.piasters);
+        }
 
-        // Iterator starting from the largest banknote
-        for (Map.Entry<BigDecimal, Integer> entry : this.banknotes.descendingMap().entrySet()) {
-            if (entry.getKey().compareTo(BigDecimal.ZERO) == 0) {
-                continue;
-            }
+        return result;
+    }
 
-            int remainder = totalDeductible.divideAndRemainder(entry.getKey())[0].intValue();
-            int deductibleBanknotes = min(remainder, entry.getValue());
+    /**
+     * Subtracts two Money instances, dispensing the change a policy chooses.
+     * <p>
+     * Behaves as {@link Money#minus(Money)}, except that among the exact combinations of the available banknotes, the
+     * one the policy of the table weighs least is dispensed (see {@link DispensingTable}).
+     *
+     * @param other The Money instance to subtract from
+     * @param table The precomputed change of the policy, of the same denomination set
+     * @return A new {@link Money} Instance representing the subtraction of the money param object from this object
+     * @throws InsufficientChangeException If there is insufficient change to perform the subtraction
+     * @throws IllegalArgumentException    If the money param object or the table belongs to another denomination set
+     */
+    public Money minus(Money other, DispensingTable table) {
+        long start = MoneyMetrics.start();
+        denominationSet.check(other);
+        table.denominationSet().check(this);
+        int[] result = new int[banknotes.length];
 
+        if (!table.makeChange(banknotes, other.piasters, result)) {
+            MoneyMetrics.recordFailure(MoneyMetrics.Operation.MINUS, start, denominationSet, banknotes, other.piasters);
 
-            // Update returned result
-            result.put(entry.getKey(), entry.getValue() - deductibleBanknotes);
+            throw new InsufficientChangeException(denominationSet, banknotes, other.piasters);
+        }
 
-            // Update deductible value by the reducing its value in concurrence to the previous partial coverage
-            totalDeductible = totalDeductible.subtract(
-                    entry.getKey().multiply(BigDecimal.valueOf(deductibleBanknotes))
-            );
+        for (int i = 0; i < result.length; i++) {
+            result[i] = banknotes[i] - result[i];
         }
 
-        if (totalDeductible.compareTo(BigDecimal.ZERO) != 0) {
-            throw new IllegalArgumentException("Could not perform deduction; insufficient change");
+        MoneyMetrics.record(MoneyMetrics.Operation.MINUS, start);
+
+        return new Money(denominationSet, result);
+    }
+
+    /**
+     * Subtracts two Money instances, if possible.
+     * <p>
+     * Behaves exactly as {@link Money#minus(Money)}, except that insufficient change is reported by returning null
+     * rather than throwing, which makes it suitable when insufficient change is an expected outcome; the missing
+     * amount can then be obtained through {@link Money#shortfall(Money)}.
+     *
+     * @param other The Money instance to subtract from
+     * @return A new {@link Money} Instance representing the subtraction of the money param object from this object, or
+     * null if there is insufficient change to perform the subtraction
+     * @throws IllegalArgumentException If the money param object belongs to another denomination set
+     */
+    public Money tryMinus(Money other) {
+        long start = MoneyMetrics.start();
+        denominationSet.check(other);
+        ChangeMaker changeMaker = denominationSet.changeMaker();
+        int[] result = new int[banknotes.length];
+
+        // Get the numeric value of 'other' (The type of banknotes received should be irrelevant)
+        if (!changeMaker.makeChange(banknotes, other.piasters, result)) {
+            MoneyMetrics.recordFailure(MoneyMetrics.Operation.MINUS, start, denominationSet, banknotes, other.piasters);
+
+            return null;
+        }
+
+        // Turn the dispatched change into the remaining banknotes in place
+        for (int i = 0; i < result.length; i++) {
+            result[i] = banknotes[i] - result[i];
         }
 
-        return new Money(result);
+        MoneyMetrics.record(MoneyMetrics.Operation.MINUS, start);
+
+        return new Money(denominationSet, result);
+    }
+
+    /**
+     * Calculates how much change is missing to subtract two Money instances.
+     *
+     * @param other The Money instance to subtract from
+     * @return The difference between the value of 'other' and the largest amount not exceeding it that can be given
+     * exactly, zero if {@link Money#minus(Money)} succeeds
+     * @throws IllegalArgumentException If the money param object belongs to another denomination set
+     */
+    public double shortfall(Money other) {
+        denominationSet.check(other);
+
+        return denominationSet.changeMaker().shortfall(banknotes, other.piasters)
+                / (double) denominationSet.unitsPerMajor();
     }
 
     /**
@@ -178,70 +394,88 @@ public class Money {
      *
      * @param other The Money instance to subtract from
      * @return A new {@link Money} Instance representing the subtraction of the money param object from this object
-     * @throws IllegalArgumentException If there is insufficient change to perform the subtraction
+     * @throws InsufficientChangeException If there is insufficient change to perform the subtraction
+     * @throws IllegalArgumentException    If the money param object belongs to another denomination set
      * @deprecated Use {@link Money#minus(Money)} minus(Money other) instead
      */
     @Deprecated
     public Money minusComplex(Money other) {
-        Map<BigDecimal, Integer> result = new TreeMap<>(banknotes);
-
-        // Directly deduct the 'banknotes' for both money objects, negative map values needs to be properly handled
-        other.banknotes.forEach((key, value) -> result.merge(key, -value, Integer::sum));
+        long start = MoneyMetrics.start();
+        denominationSet.check(other);
+        long[] denominations = denominationSet.denominations();
+        int[] result = new int[banknotes.length];
+
+        // Directly deduct the 'banknotes' for both money objects, negative counts needs to be properly handled
+        for (int i = 0; i < result.length; i++) {
+            result[i] = banknotes[i] - other.banknotes[i];
+        }
 
-        // Fetch banknotes whose values are negative
-        Map<BigDecimal, Integer> unavailableBanknotes = result.entrySet().stream()
-                .filter(entry -> entry.getValue() < 0)
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        // Fetch banknotes whose counts are negative
+        int[] unavailableBanknotes = result.clone();
 
         // Iterate through negative entries (required banknotes that are unavailable to directly deduct)
-        for (Map.Entry<BigDecimal, Integer> entry : unavailableBanknotes.entrySet()) {
+        int[] substituteBanknotes = new int[banknotes.length];
+        for (int i = 0; i < unavailableBanknotes.length; i++) {
+            if (unavailableBanknotes[i] >= 0) {
+                continue;
+            }
+
             // The banknotes that satisfy the requirement (whose total value is exact to the missing banknotes)
-            Map<BigDecimal, Integer> substituteBanknotes = new TreeMap<>();
+            Arrays.fill(substituteBanknotes, 0);
 
             // The amount the needs to be satisfied
-            BigDecimal unavailableAmount = entry.getKey().multiply(BigDecimal.valueOf(abs(entry.getValue())));
+            long unavailableAmount = denominations[i] * abs(unavailableBanknotes[i]);
 
             // Iterator starting from the largest banknote
-            for (Map.Entry<BigDecimal, Integer> entry1 : banknotes.descendingMap().entrySet()) {
-                // Defensively checking for zero banknote values to prevent possible arithmetic exceptions
-                if (entry1.getKey().compareTo(BigDecimal.ZERO) == 0) {
-                    continue;
-                }
-
-
+            for (int j = banknotes.length - 1; j >= 0; j--) {
                 // The remaining amount to reach the exact requirement
-                BigDecimal remainingAmount = unavailableAmount.subtract(getMapValuesSum(substituteBanknotes));
-
+                long remainingAmount = unavailableAmount - getBanknotesSum(substituteBanknotes);
 
                 // Check if remainingAmount is dividable with the banknote candidate value
-                if (entry1.getKey().compareTo(remainingAmount) <= 0) {
+                if (denominations[j] <= remainingAmount) {
                     // Add the candidate banknote for pending substitution (must not exceed its count)
-                    substituteBanknotes.put(
-                            entry1.getKey(),
-                            min(
-                                    entry1.getValue(),
-                                    remainingAmount.divide(entry1.getKey(), RoundingMode.UNNECESSARY).intValue()
-                            )
-                    );
+                    substituteBanknotes[j] = (int) min(banknotes[j], remainingAmount / denominations[j]);
                 }
             }
 
             // Checks if the candidate value is exact with unavailable banknotes
-            if (getMapValuesSum(substituteBanknotes).compareTo(unavailableAmount) == 0) {
-                result.put(entry.getKey(), 0);
-                substituteBanknotes.forEach((key, value) -> result.merge(key, -value, Integer::sum));
+            if (getBanknotesSum(substituteBanknotes) == unavailableAmount) {
+                result[i] = 0;
+                for (int j = 0; j < result.length; j++) {
+                    result[j] -= substituteBanknotes[j];
+                }
             } else {
                 // No candidate values were found for an unavailable banknotes
-                throw new IllegalArgumentException("Could not perform deduction; insufficient change");
+                long shortfall = unavailableAmount - getBanknotesSum(substituteBanknotes);
+                MoneyMetrics.recordFailure(MoneyMetrics.Operation.MINUS_COMPLEX, start, denominationSet, shortfall);
+
+                throw new InsufficientChangeException(denominationSet, shortfall);
             }
         }
 
-        return new Money(result);
+        MoneyMetrics.record(MoneyMetrics.Operation.MINUS_COMPLEX, start);
+
+        return new Money(denominationSet, result);
+    }
+
+    /**
+     * Compares two Money instances by their total amount, regardless of their banknotes.
+     *
+     * @param other The Money instance to compare to
+     * @return A negative integer, zero, or a positive integer if this object is less than, equal to, or greater than
+     * the money param object
+     * @throws IllegalArgumentException If the money param object belongs to another denomination set
+     */
+    @Override
+    public int compareTo(Money other) {
+        denominationSet.check(other);
+
+        return Long.compare(piasters, other.piasters);
     }
 
     @Override
     public int hashCode() {
-        return Double.hashCode(amount());
+        return Long.hashCode(piasters);
     }
 
     @Override
@@ -255,11 +489,11 @@ public class Money {
         }
 
         Money money = (Money) obj;
-        return Objects.equals(money.amount(), amount());
+        return money.piasters == piasters && money.denominationSet == denominationSet;
     }
 
     @Override
     public String toString() {
-        return String.format("%.2f", amount());
+        return denominationSet.format(piasters);
     }
 }
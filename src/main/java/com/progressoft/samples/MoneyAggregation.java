@@ -0,0 +1,204 @@
+package com.progressoft.samples;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * Aggregates large collections of {@link Money} instances (e.g. the drawers of a fleet) across all cores.
+ * <p>
+ * Every worker accumulates the banknote counts of its share of the input into a primitive buffer (one {@code long} per
+ * denomination), and the buffers are only merged at the end, hence, no intermediate {@link Money} instance is created.
+ * Large inputs are split across the common {@link ForkJoinPool}, while small ones are summed on the calling thread.
+ * <p>
+ * All the aggregated instances must belong to the same {@link DenominationSet}.
+ */
+public final class MoneyAggregation {
+    // The number of items below which an input is summed sequentially
+    private static final int THRESHOLD = 1 << 13;
+
+    private MoneyAggregation() {
+    }
+
+    /**
+     * Sums a collection of Money instances, in parallel for large collections.
+     *
+     * @param items The Money instances to sum
+     * @return A new {@link Money} Instance representing the total sum of all provided money objects
+     * @throws ArithmeticException      If the total count of a banknote exceeds {@link Integer} constraints
+     * @throws IllegalArgumentException If the items belong to different denomination sets
+     */
+    public static Money sum(Collection<Money> items) {
+        Money[] array = items.toArray(new Money[0]);
+
+        if (array.length < THRESHOLD) {
+            return new SumTask(array, 0, array.length).compute().toMoney();
+        }
+
+        return ForkJoinPool.commonPool().invoke(new SumTask(array, 0, array.length)).toMoney();
+    }
+
+    /**
+     * Creates a collector summing Money instances, which accumulates into primitive buffers (one per worker, when used
+     * by a parallel stream) merged at the end.
+     *
+     * @return A {@link Collector} of the total sum of the collected money objects, which throws
+     * {@link IllegalArgumentException} if they belong to different denomination sets
+     */
+    public static Collector<Money, ?, Money> summing() {
+        return Collector.of(
+                Totals::new,
+                Totals::add,
+                Totals::merge,
+                Totals::toMoney,
+                Collector.Characteristics.UNORDERED
+        );
+    }
+
+    /**
+     * Sums a collection of items per group (e.g. the drawers of a fleet per site), in parallel; every worker sums into
+     * its own map of groups, and the maps are only merged at the end, hence, workers never contend on a group.
+     *
+     * @param items      The items to sum
+     * @param classifier The function mapping an item to its group
+     * @param mapper     The function mapping an item to the Money instance to sum
+     * @param <T>        The type of the items
+     * @param <K>        The type of the groups
+     * @return A map of each group to the total sum of its items
+     * @throws IllegalArgumentException If the items of a group belong to different denomination sets
+     */
+    public static <T, K> Map<K, Money> sumBy(Collection<T> items, Function<? super T, ? extends K> classifier,
+                                             Function<? super T, Money> mapper) {
+        return items.parallelStream()
+                .collect(Collectors.groupingBy(classifier, Collectors.mapping(mapper, summing())));
+    }
+
+    /**
+     * Counts the banknotes of each denomination across a collection of Money instances, in parallel for large
+     * collections.
+     *
+     * @param items The Money instances to count
+     * @return A map of each banknote (e.g. {@link Money#OneDinar}) to its total count, sorted by banknote value; the
+     * banknotes of the predefined denomination set if there are no items
+     * @throws IllegalArgumentException If the items belong to different denomination sets
+     */
+    public static SortedMap<Money, Long> countByBanknote(Collection<Money> items) {
+        Money[] array = items.toArray(new Money[0]);
+
+        Totals totals = array.length < THRESHOLD
+                ? new SumTask(array, 0, array.length).compute()
+                : ForkJoinPool.commonPool().invoke(new SumTask(array, 0, array.length));
+
+        DenominationSet denominationSet = totals.denominationSet();
+        long[] totalCounts = totals.counts != null ? totals.counts : new long[denominationSet.size()];
+
+        SortedMap<Money, Long> counts = new TreeMap<>();
+        for (int i = 0; i < denominationSet.size(); i++) {
+            counts.put(denominationSet.banknote(denominationSet.denomination(i)), totalCounts[i]);
+        }
+
+        return counts;
+    }
+
+    /**
+     * Accumulates banknote counts of Money instances into a primitive buffer, sized upon the first instance.
+     */
+    static final class Totals {
+        private DenominationSet denominationSet;
+
+        private long[] counts;
+
+        void add(Money money) {
+            if (counts == null) {
+                denominationSet = money.denominationSet();
+                counts = new long[denominationSet.size()];
+            } else {
+                denominationSet.check(money);
+            }
+
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += money.count(i);
+            }
+        }
+
+        Totals merge(Totals other) {
+            if (other.counts == null) {
+                return this;
+            }
+
+            if (counts == null) {
+                return other;
+            }
+
+            if (other.denominationSet != denominationSet) {
+                throw new IllegalArgumentException("Could not perform operation; mismatched denomination sets");
+            }
+
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+
+            return this;
+        }
+
+        DenominationSet denominationSet() {
+            return denominationSet != null ? denominationSet : DenominationSet.JOD;
+        }
+
+        Money toMoney() {
+            if (counts == null) {
+                return Money.Zero;
+            }
+
+            int[] banknotes = new int[counts.length];
+
+            for (int i = 0; i < counts.length; i++) {
+                banknotes[i] = Math.toIntExact(counts[i]);
+            }
+
+            return Money.wrap(denominationSet, banknotes);
+        }
+    }
+
+    /**
+     * Sums a range of an array of Money instances, splitting it in halves until it is small enough.
+     */
+    private static final class SumTask extends RecursiveTask<Totals> {
+        private static final long serialVersionUID = 1L;
+
+        private final Money[] items;
+
+        private final int from;
+
+        private final int to;
+
+        private SumTask(Money[] items, int from, int to) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from < THRESHOLD) {
+                Totals totals = new Totals();
+
+                for (int i = from; i < to; i++) {
+                    totals.add(items[i]);
+                }
+
+                return totals;
+            }
+
+            int middle = (from + to) >>> 1;
+            SumTask left = new SumTask(items, from, middle);
+            left.fork();
+
+            Totals right = new SumTask(items, middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.progressoft.samples;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.progressoft.samples.Money.*;
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 1)
+@Warmup(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyAggregationBenchmark {
+    private static final Money[] BANKNOTES = {OnePiaster, FivePiasters, TenPiasters, TwentyFivePiasters, FiftyPiasters,
+            OneDinar, FiveDinars, TenDinars, TwentyDinars, FiftyDinars};
+
+    // The number of drawers of the fleet
+    @Param({"100000", "1000000"})
+    public int fleetSize;
+
+    private List<Money> fleet;
+
+    private Money[] fleetArray;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+
+        fleet = new ArrayList<>(fleetSize);
+        for (int i = 0; i < fleetSize; i++) {
+            CashDrawer drawer = new CashDrawer();
+            for (Money banknote : BANKNOTES) {
+                drawer.add(banknote.times(random.nextInt(100)));
+            }
+            fleet.add(drawer.toMoney());
+        }
+
+        fleetArray = fleet.toArray(new Money[0]);
+    }
+
+    /**
+     * Benchmarks summing the fleet sequentially through {@link Money#sum(Money...)}.
+     */
+    @Benchmark
+    public Money benchmarkSumSequential() {
+        return sum(fleetArray);
+    }
+
+    /**
+     * Benchmarks summing the fleet in parallel through {@link Money#sum(java.util.Collection)}.
+     */
+    @Benchmark
+    public Money benchmarkSumParallel() {
+        return sum(fleet);
+    }
+
+    /**
+     * Benchmarks summing the fleet through a parallel stream and {@link MoneyAggregation#summing()}.
+     */
+    @Benchmark
+    public Money benchmarkSummingCollector() {
+        return fleet.parallelStream().collect(MoneyAggregation.summing());
+    }
+}
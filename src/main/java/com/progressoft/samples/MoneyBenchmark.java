@@ -1,20 +1,177 @@
 package com.progressoft.samples;
 
 import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
 
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import static com.progressoft.samples.Money.*;
 
 
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Measurement(iterations = 20, time = 1)
+@Warmup(iterations = 5, time = 1)
 public class MoneyBenchmark {
+    /**
+     * The banknotes a drawer is filled with.
+     */
+    public enum Mix {
+        // Only one piaster coins, the fixture of the sale benchmarks
+        PIASTERS(OnePiaster),
+        // Coins only, from one piaster up to fifty piasters
+        COINS(OnePiaster, FivePiasters, TenPiasters, TwentyFivePiasters, FiftyPiasters),
+        // Every banknote
+        MIXED(OnePiaster, FivePiasters, TenPiasters, TwentyFivePiasters, FiftyPiasters,
+                OneDinar, FiveDinars, TenDinars, TwentyDinars, FiftyDinars);
+
+        private final Money[] banknotes;
+
+        Mix(Money... banknotes) {
+            this.banknotes = banknotes;
+        }
+
+        /**
+         * Creates a drawer holding a number of banknotes, evenly spread across the banknotes of this mix.
+         *
+         * @param size The total number of banknotes
+         * @return A new {@link Money} instance of the drawer
+         */
+        Money drawer(int size) {
+            Money[] items = new Money[banknotes.length];
+
+            for (int i = 0; i < banknotes.length; i++) {
+                items[i] = banknotes[i].times(size / banknotes.length);
+            }
+
+            return sum(items);
+        }
+    }
+
+    // The change given back for a sale, made of multiple unique banknotes
+    private static final Money CHANGE = OnePiaster
+            .plus(FivePiasters)
+            .plus(TenPiasters)
+            .plus(TwentyFivePiasters)
+            .plus(FiftyPiasters);
+
+    /**
+     * A drawer of a given size and mix of banknotes, built before measuring.
+     */
+    @State(Scope.Thread)
+    public static class Drawer {
+        @Param({"1000", "100000", "500000"})
+        public int drawerSize;
+
+        @Param({"PIASTERS", "COINS", "MIXED"})
+        public Mix mix;
+
+        private Money money;
+
+        private Money equalMoney;
+
+        private Money[] items;
+
+        @Setup
+        public void setup() {
+            money = mix.drawer(drawerSize);
+            equalMoney = mix.drawer(drawerSize);
+
+            items = new Money[100];
+            Arrays.fill(items, mix.drawer(drawerSize / items.length));
+        }
+    }
+
+    /**
+     * The drawer of the sale benchmarks, 500k of one piaster (equivalent to 5k dinars), built before measuring.
+     */
+    @State(Scope.Thread)
+    public static class Sales {
+        private final Money initial = OnePiaster.times(500_000);
+    }
+
+    /**
+     * Benchmarks the performance of the {@link Money#plus(Money)} method on the drawer.
+     */
+    @Benchmark
+    public Money benchmarkPlus(Drawer drawer) {
+        return drawer.money.plus(CHANGE);
+    }
+
+    /**
+     * Benchmarks the performance of the {@link Money#times(int)} method on the drawer.
+     */
+    @Benchmark
+    public Money benchmarkTimes(Drawer drawer) {
+        return drawer.money.times(3);
+    }
+
+    /**
+     * Benchmarks the performance of computing a typical price through {@link Money#times(int)} and
+     * {@link Money#plus(Money)}, which are served by the {@link MoneyCache}.
+     */
+    @Benchmark
+    public Money benchmarkPrice() {
+        return FiftyPiasters.times(3).plus(TwentyFivePiasters);
+    }
+
+    /**
+     * Benchmarks the performance of the {@link Money#sum(Money...)} method over a hundred parts of the drawer.
+     */
+    @Benchmark
+    public Money benchmarkSum(Drawer drawer) {
+        return sum(drawer.items);
+    }
+
+    /**
+     * Benchmarks the performance of the {@link Money#amount()} method on the drawer.
+     */
+    @Benchmark
+    public double benchmarkAmount(Drawer drawer) {
+        return drawer.money.amount();
+    }
+
+    /**
+     * Benchmarks the performance of the {@link Money#equals(Object)} method between two equal drawers.
+     */
+    @Benchmark
+    public boolean benchmarkEquals(Drawer drawer) {
+        return drawer.money.equals(drawer.equalMoney);
+    }
+
+    /**
+     * Benchmarks the performance of the {@link Money#hashCode()} method on the drawer.
+     */
+    @Benchmark
+    public int benchmarkHashCode(Drawer drawer) {
+        return drawer.money.hashCode();
+    }
+
+    /**
+     * Benchmarks the performance of a single {@link Money#minus(Money)} call on the drawer.
+     */
+    @Benchmark
+    public Money benchmarkMinusSingle(Drawer drawer) {
+        return drawer.money.minus(CHANGE);
+    }
+
+    /**
+     * Benchmarks the performance of a single {@link Money#minusComplex(Money)} call on the drawer.
+     */
+    @SuppressWarnings("deprecation")
+    @Benchmark
+    public Money benchmarkMinusComplexSingle(Drawer drawer) {
+        return drawer.money.minusComplex(CHANGE);
+    }
 
     /**
      * Benchmarks the performance of the optimized {@link Money#minus(Money)} method.
      * <p>
-     * The benchmark first allocates 500k of one piaster (equivalent to 5k dinars), and attempts to call
+     * The benchmark starts from 500k of one piaster (equivalent to 5k dinars), and attempts to call
      * {@link Money#minus(Money)} multiple times for a thousand times.
      * <p>
      * The benchmark consists of two main operations:
@@ -24,67 +181,59 @@ public class MoneyBenchmark {
      * </ul>
      */
     @Benchmark
-    @BenchmarkMode(Mode.AverageTime)
     @OutputTimeUnit(TimeUnit.MILLISECONDS)
-    @Measurement(iterations = 20, time = 1)
-    @Warmup(iterations = 5, time = 1)
-    public void benchmarkMinus() {
-        Money initial = OnePiaster.times(500_000);
-        for (int _ : IntStream.range(0, 1000).boxed().collect(Collectors.toList())) {
+    public Money benchmarkMinus(Sales sales) {
+        Money initial = sales.initial;
+        for (int i = 0; i < 1000; i++) {
             initial = initial.minus(OnePiaster)
                     .minus(FivePiasters)
                     .minus(TenPiasters)
                     .minus(TwentyFivePiasters)
                     .minus(FiftyPiasters);
 
-            initial = initial.minus(
-                    OnePiaster
-                            .plus(FivePiasters)
-                            .plus(TenPiasters)
-                            .plus(TwentyFivePiasters)
-                            .plus(FiftyPiasters)
-            );
+            initial = initial.minus(CHANGE);
         }
+        return initial;
     }
 
     /**
      * Benchmarks the performance of the deprecated {@link Money#minusComplex(Money)} method.
      * <p>
-     * The benchmark first allocates 500k of one piaster (equivalent to 5k dinars), and attempts to call
-     * {@link Money#minus(Money)} multiple times for a thousand times.
+     * The benchmark starts from 500k of one piaster (equivalent to 5k dinars), and attempts to call
+     * {@link Money#minusComplex(Money)} multiple times for a thousand times.
      * <p>
      * The benchmark consists of two main operations:
      * <ul>
-     *   <li>Invoke {@link Money#minus(Money)} several times</li>
-     *   <li>Invoke {@link Money#minus(Money)} one time, however, which multiple unique banknotes within</li>
+     *   <li>Invoke {@link Money#minusComplex(Money)} several times</li>
+     *   <li>Invoke {@link Money#minusComplex(Money)} one time, however, which multiple unique banknotes within</li>
      * </ul>
      */
     @SuppressWarnings("deprecation")
     @Benchmark
-    @BenchmarkMode(Mode.AverageTime)
     @OutputTimeUnit(TimeUnit.MILLISECONDS)
-    @Measurement(iterations = 20, time = 1)
-    @Warmup(iterations = 5, time = 1)
-    public void benchmarkMinusComplex() {
-        Money initial = OnePiaster.times(500_000);
-        for (int _ : IntStream.range(0, 1000).boxed().collect(Collectors.toList())) {
+    public Money benchmarkMinusComplex(Sales sales) {
+        Money initial = sales.initial;
+        for (int i = 0; i < 1000; i++) {
             initial = initial.minusComplex(OnePiaster)
                     .minusComplex(FivePiasters)
                     .minusComplex(TenPiasters)
                     .minusComplex(TwentyFivePiasters)
                     .minusComplex(FiftyPiasters);
 
-            initial = initial.minusComplex(
-                    OnePiaster
-                            .plus(FivePiasters)
-                            .plus(TenPiasters)
-                            .plus(TwentyFivePiasters)
-                            .plus(FiftyPiasters)
-            );
+            initial = initial.minusComplex(CHANGE);
         }
+        return initial;
     }
 
+    /**
+     * Runs the benchmarks (optionally filtered by the JMH command line arguments) with the GC profiler enabled, which
+     * reports the allocation rate of each benchmark alongside its timing.
+     */
     public static void main(String[] args) throws Exception {
-        org.openjdk.jmh.Main.main(args);
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()
+        ).run();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,226 @@
+package com.progressoft.samples;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Interns the {@link Money} instances produced by {@link Money#times(int)} and {@link Money#plus(Money)}, so that
+ * common values (e.g. prices) are shared rather than allocated on every call.
+ * <p>
+ * Values made of a single denomination are held by canonical instances, for counts up to
+ * {@code com.progressoft.samples.MoneyCache.maxCount} (100 by default). Other values of at most that many banknotes are
+ * held by a bounded, direct-mapped cache of {@code com.progressoft.samples.MoneyCache.size} slots (1024 by default,
+ * rounded up to a power of two), where a value replaces the one held by its slot. Larger values (e.g. drawers) bypass
+ * the cache entirely. Both limits are read from the system properties once, and clamped between zero (which disables
+ * the tier) and 4096 banknotes or 2^20 slots respectively, which keeps the tables within a few megabytes.
+ * <p>
+ * Both tiers are read and written with single atomic accesses, without any lock, hence, concurrent arithmetic never
+ * contends on the cache (and never blocks the carrier of a virtual thread). Candidate values are computed into a
+ * per-thread buffer, hence, a hit allocates nothing. Values of every {@link DenominationSet} are cached, each set
+ * having its own canonical instances.
+ */
+public final class MoneyCache {
+    private static final int MAX_COUNT = limit("com.progressoft.samples.MoneyCache.maxCount", 100, 1 << 12);
+
+    private static final int SIZE = limit("com.progressoft.samples.MoneyCache.size", 1024, 1 << 20);
+
+    // Per-thread buffers, indexed by their length (i.e. the size of the denomination set)
+    private static final ThreadLocal<int[][]> SCRATCH = ThreadLocal.withInitial(() -> new int[0][]);
+
+    // Canonical instances of single-denomination values per set, indexed by denomination then count, created lazily
+    private static final ConcurrentMap<DenominationSet, AtomicReferenceArray<Money>> SINGLES =
+            new ConcurrentHashMap<>();
+
+    // The canonical instances of the predefined set, which skip the lookup by set
+    private static final AtomicReferenceArray<Money> JOD_SINGLES = singles(DenominationSet.JOD);
+
+    // The multi-denomination values, each in the slot of its hash
+    private static final AtomicReferenceArray<Money> RECENT =
+            new AtomicReferenceArray<>(SIZE <= 0 ? 0 : Integer.highestOneBit(Math.max(SIZE - 1, 1)) << 1);
+
+    private static final LongAdder HITS = new LongAdder();
+
+    private static final LongAdder MISSES = new LongAdder();
+
+    private MoneyCache() {
+    }
+
+    // Reads a limit from the system properties, clamped so that the tables it sizes cannot overflow
+    private static int limit(String property, int defaultValue, int max) {
+        return Math.min(Math.max(Integer.getInteger(property, defaultValue), 0), max);
+    }
+
+    /**
+     * Fetches the per-thread buffer candidate values are computed into, before being passed to
+     * {@link MoneyCache#intern(DenominationSet, int[])}.
+     *
+     * @param denominationSet The denomination set of the candidate values
+     * @return The per-thread buffer of banknote counts, indexed by denomination
+     */
+    static int[] scratch(DenominationSet denominationSet) {
+        int length = denominationSet.size();
+        int[][] buffers = SCRATCH.get();
+
+        if (length >= buffers.length) {
+            buffers = Arrays.copyOf(buffers, length + 1);
+            SCRATCH.set(buffers);
+        }
+
+        if (buffers[length] == null) {
+            buffers[length] = new int[length];
+        }
+
+        return buffers[length];
+    }
+
+    /**
+     * Fetches the shared Money instance of a value, creating (and caching, if eligible) it on a miss.
+     *
+     * @param denominationSet The denomination set of the value
+     * @param banknotes       The banknote counts of the value, indexed by denomination; not retained
+     * @return A {@link Money} instance holding the given banknotes
+     */
+    static Money intern(DenominationSet denominationSet, int[] banknotes) {
+        long total = 0;
+        int denominations = 0;
+        int single = 0;
+
+        for (int i = 0; i < banknotes.length; i++) {
+            if (banknotes[i] != 0) {
+                total += banknotes[i];
+                denominations++;
+                single = i;
+            }
+        }
+
+        if (denominations == 0) {
+            return denominationSet.zero();
+        }
+
+        if (total > MAX_COUNT || total < 0) {
+            return Money.wrap(denominationSet, banknotes.clone());
+        }
+
+        if (denominations == 1) {
+            return single(denominationSet, single, (int) total);
+        }
+
+        if (RECENT.length() == 0) {
+            return Money.wrap(denominationSet, banknotes.clone());
+        }
+
+        int hash = 31 * denominationSet.hashCode() + Arrays.hashCode(banknotes);
+        int slot = (hash ^ hash >>> 16) & (RECENT.length() - 1);
+        Money money = RECENT.get(slot);
+
+        if (money != null && holds(money, denominationSet, banknotes)) {
+            HITS.increment();
+            return money;
+        }
+
+        MISSES.increment();
+        money = Money.wrap(denominationSet, banknotes.clone());
+        RECENT.set(slot, money);
+
+        return money;
+    }
+
+    private static boolean holds(Money money, DenominationSet denominationSet, int[] banknotes) {
+        if (money.denominationSet() != denominationSet) {
+            return false;
+        }
+
+        for (int i = 0; i < banknotes.length; i++) {
+            if (money.count(i) != banknotes[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static Money single(DenominationSet denominationSet, int index, int count) {
+        AtomicReferenceArray<Money> singles =
+                denominationSet == DenominationSet.JOD ? JOD_SINGLES : singles(denominationSet);
+
+        int slot = index * (MAX_COUNT + 1) + count;
+        Money money = singles.get(slot);
+
+        if (money != null) {
+            HITS.increment();
+            return money;
+        }
+
+        MISSES.increment();
+        int[] banknotes = new int[denominationSet.size()];
+        banknotes[index] = count;
+
+        singles.compareAndSet(slot, null, Money.wrap(denominationSet, banknotes));
+        return singles.get(slot);
+    }
+
+    private static AtomicReferenceArray<Money> singles(DenominationSet denominationSet) {
+        return SINGLES.computeIfAbsent(
+                denominationSet,
+                key -> new AtomicReferenceArray<>(key.size() * (MAX_COUNT + 1))
+        );
+    }
+
+    /**
+     * Fetches the number of calls served by a shared instance.
+     *
+     * @return The number of cache hits
+     */
+    public static long hitCount() {
+        return HITS.sum();
+    }
+
+    /**
+     * Fetches the number of calls that created a new shared instance; values bypassing the cache are not counted.
+     *
+     * @return The number of cache misses
+     */
+    public static long missCount() {
+        return MISSES.sum();
+    }
+
+    /**
+     * Calculates the ratio of hits to all cached lookups.
+     *
+     * @return The hit rate between 0 and 1, zero if nothing was looked up
+     */
+    public static double hitRate() {
+        long hits = hitCount();
+        long total = hits + missCount();
+
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Fetches the number of multi-denomination values currently held by the bounded cache.
+     *
+     * @return The number of cached values
+     */
+    public static int size() {
+        int size = 0;
+
+        for (int i = 0; i < RECENT.length(); i++) {
+            if (RECENT.get(i) != null) {
+                size++;
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Resets the hit and miss counts, the cached values are kept.
+     */
+    public static void resetStats() {
+        HITS.reset();
+        MISSES.reset();
+    }
+}
@@ -0,0 +1,220 @@
+package com.progressoft.samples;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes {@link Money} instances into a compact binary form, and decodes them back, exactly.
+ * <p>
+ * A Money instance is written as a bitmask of the denominations it holds, followed by the count of each of those
+ * denominations, all as unsigned variable-length integers (7 bits per byte, least significant group first). Common
+ * values therefore take only a few bytes; for example, a single banknote takes two bytes up to the seventh denomination
+ * (five dinars) and three bytes beyond it, and an empty instance takes a single byte.
+ * <p>
+ * Values are written directly into (and read directly from) the given {@link ByteBuffer}, without any intermediate
+ * object. Counts are never negative, hence, they round-trip exactly; encoding rejects negative counts, and decoding
+ * rejects them as well as integers exceeding 32 bits.
+ * <p>
+ * The denomination set is not part of the encoded form, values are decoded into the predefined set
+ * ({@link DenominationSet#JOD}) unless another one is given; sets of up to 32 banknotes are supported.
+ */
+public final class MoneyCodec {
+    // The largest number of bytes an unsigned variable-length 32-bit integer takes
+    private static final int MAX_VARINT_SIZE = 5;
+
+    // The largest number of banknotes of a denomination set, one bit each within the mask
+    private static final int MAX_DENOMINATIONS = Integer.SIZE;
+
+    private MoneyCodec() {
+    }
+
+    /**
+     * Calculates the largest number of bytes an encoded Money instance of the predefined set takes.
+     *
+     * @return The largest number of bytes of an encoded Money instance
+     */
+    public static int maxEncodedSize() {
+        return maxEncodedSize(DenominationSet.JOD);
+    }
+
+    /**
+     * Calculates the largest number of bytes an encoded Money instance of a denomination set takes.
+     *
+     * @param denominationSet The denomination set of the Money instances
+     * @return The largest number of bytes of an encoded Money instance
+     */
+    public static int maxEncodedSize(DenominationSet denominationSet) {
+        return MAX_VARINT_SIZE * (denominationSet.size() + 1);
+    }
+
+    /**
+     * Encodes a Money instance into a buffer, at its current position.
+     *
+     * @param money  The Money instance to encode
+     * @param buffer The buffer to encode into, its position is advanced past the encoded value
+     * @throws java.nio.BufferOverflowException If the buffer does not have enough remaining space
+     * @throws IllegalArgumentException         If the denomination set of the Money instance has over 32 banknotes, or
+     *                                          if any count is negative (in which case nothing is written)
+     */
+    public static void encode(Money money, ByteBuffer buffer) {
+        int denominations = supported(money.denominationSet()).size();
+        int mask = 0;
+
+        for (int i = 0; i < denominations; i++) {
+            if (money.count(i) < 0) {
+                throw new IllegalArgumentException("Could not encode money; negative count");
+            }
+
+            if (money.count(i) != 0) {
+                mask |= 1 << i;
+            }
+        }
+
+        writeVarint(mask, buffer);
+
+        for (int i = 0; i < denominations; i++) {
+            if (money.count(i) != 0) {
+                writeVarint(money.count(i), buffer);
+            }
+        }
+    }
+
+    /**
+     * Decodes a Money instance of the predefined set from a buffer, at its current position.
+     *
+     * @param buffer The buffer to decode from, its position is advanced past the decoded value
+     * @return The decoded {@link Money} instance
+     * @throws IllegalArgumentException If the buffer does not hold a valid encoded value
+     */
+    public static Money decode(ByteBuffer buffer) {
+        return decode(DenominationSet.JOD, buffer);
+    }
+
+    /**
+     * Decodes a Money instance of a denomination set from a buffer, at its current position.
+     *
+     * @param denominationSet The denomination set the value was encoded with
+     * @param buffer          The buffer to decode from, its position is advanced past the decoded value
+     * @return The decoded {@link Money} instance
+     * @throws IllegalArgumentException If the buffer does not hold a valid encoded value, or if the denomination set
+     *                                  has over 32 banknotes
+     */
+    public static Money decode(DenominationSet denominationSet, ByteBuffer buffer) {
+        int denominations = supported(denominationSet).size();
+        int[] banknotes = new int[denominations];
+
+        int mask = readVarint(buffer);
+        if (denominations < MAX_DENOMINATIONS && mask >>> denominations != 0) {
+            throw new IllegalArgumentException("Could not decode money; unknown denomination");
+        }
+
+        for (int i = 0; i < denominations; i++) {
+            if ((mask & 1 << i) != 0) {
+                banknotes[i] = readVarint(buffer);
+
+                if (banknotes[i] < 0) {
+                    throw new IllegalArgumentException("Could not decode money; negative count");
+                }
+            }
+        }
+
+        return Money.wrap(denominationSet, banknotes);
+    }
+
+    /**
+     * Encodes multiple Money instances into a buffer, at its current position, preceded by their number.
+     *
+     * @param items  The Money instances to encode
+     * @param buffer The buffer to encode into, its position is advanced past the encoded values
+     * @throws java.nio.BufferOverflowException If the buffer does not have enough remaining space
+     */
+    public static void encodeAll(Money[] items, ByteBuffer buffer) {
+        writeVarint(items.length, buffer);
+
+        for (Money item : items) {
+            encode(item, buffer);
+        }
+    }
+
+    /**
+     * Decodes multiple Money instances of the predefined set from a buffer, at its current position, as written by
+     * {@link MoneyCodec#encodeAll(Money[], ByteBuffer)}.
+     *
+     * @param buffer The buffer to decode from, its position is advanced past the decoded values
+     * @return The decoded {@link Money} instances
+     * @throws IllegalArgumentException If the buffer does not hold valid encoded values
+     */
+    public static Money[] decodeAll(ByteBuffer buffer) {
+        return decodeAll(DenominationSet.JOD, buffer);
+    }
+
+    /**
+     * Decodes multiple Money instances of a denomination set from a buffer, at its current position, as written by
+     * {@link MoneyCodec#encodeAll(Money[], ByteBuffer)}.
+     *
+     * @param denominationSet The denomination set the values were encoded with
+     * @param buffer          The buffer to decode from, its position is advanced past the decoded values
+     * @return The decoded {@link Money} instances
+     * @throws IllegalArgumentException If the buffer does not hold valid encoded values, or if the denomination set
+     *                                  has over 32 banknotes
+     */
+    public static Money[] decodeAll(DenominationSet denominationSet, ByteBuffer buffer) {
+        int count = readVarint(buffer);
+
+        // Each value takes at least one byte, which rejects corrupted counts before allocating
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IllegalArgumentException("Could not decode money; invalid number of values");
+        }
+
+        Money[] items = new Money[count];
+        for (int i = 0; i < count; i++) {
+            items[i] = decode(denominationSet, buffer);
+        }
+
+        return items;
+    }
+
+    private static DenominationSet supported(DenominationSet denominationSet) {
+        if (denominationSet.size() > MAX_DENOMINATIONS) {
+            throw new IllegalArgumentException(
+                    "Argument denominationSet must not exceed " + MAX_DENOMINATIONS + " banknotes"
+            );
+        }
+
+        return denominationSet;
+    }
+
+    private static void writeVarint(int value, ByteBuffer buffer) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+
+        buffer.put((byte) value);
+    }
+
+    private static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+
+        try {
+            for (int shift = 0; shift < 7 * MAX_VARINT_SIZE; shift += 7) {
+                byte b = buffer.get();
+
+                // The last byte only holds the 4 most significant bits, anything beyond would be lost
+                if (shift == 7 * (MAX_VARINT_SIZE - 1) && (b & 0xF0) != 0) {
+                    break;
+                }
+
+                value |= (b & 0x7F) << shift;
+
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Could not decode money; truncated value", e);
+        }
+
+        throw new IllegalArgumentException("Could not decode money; malformed value");
+    }
+}
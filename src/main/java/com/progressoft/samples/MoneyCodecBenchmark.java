@@ -0,0 +1,106 @@
+package com.progressoft.samples;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.progressoft.samples.Money.*;
+
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Measurement(iterations = 10, time = 1)
+@Warmup(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyCodecBenchmark {
+    private static final Money[] BANKNOTES = {OnePiaster, FivePiasters, TenPiasters, TwentyFivePiasters, FiftyPiasters,
+            OneDinar, FiveDinars, TenDinars, TwentyDinars, FiftyDinars};
+
+    // The number of values encoded per operation
+    @Param({"1000"})
+    public int size;
+
+    private Money[] items;
+
+    private ByteBuffer binary;
+
+    private ByteBuffer text;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+
+        // Typical transaction amounts, a few banknotes each
+        items = new Money[size];
+        for (int i = 0; i < size; i++) {
+            items[i] = BANKNOTES[random.nextInt(BANKNOTES.length)].times(1 + random.nextInt(5))
+                    .plus(BANKNOTES[random.nextInt(BANKNOTES.length)]);
+        }
+
+        binary = ByteBuffer.allocateDirect(1 + size * MoneyCodec.maxEncodedSize());
+        MoneyCodec.encodeAll(items, binary);
+        binary.flip();
+
+        text = ByteBuffer.allocateDirect(size * 32);
+        for (Money item : items) {
+            text.put(item.toString().getBytes(StandardCharsets.US_ASCII)).put((byte) '\n');
+        }
+        text.flip();
+    }
+
+    /**
+     * Benchmarks encoding a batch of values through {@link MoneyCodec#encodeAll(Money[], ByteBuffer)}.
+     */
+    @Benchmark
+    public ByteBuffer benchmarkEncodeBinary() {
+        binary.clear();
+        MoneyCodec.encodeAll(items, binary);
+        return binary;
+    }
+
+    /**
+     * Benchmarks decoding a batch of values through {@link MoneyCodec#decodeAll(ByteBuffer)}.
+     */
+    @Benchmark
+    public Money[] benchmarkDecodeBinary() {
+        binary.rewind();
+        return MoneyCodec.decodeAll(binary);
+    }
+
+    /**
+     * Benchmarks encoding a batch of values through their string form ({@link Money#toString()}), one per line.
+     */
+    @Benchmark
+    public ByteBuffer benchmarkEncodeString() {
+        text.clear();
+        for (Money item : items) {
+            text.put(item.toString().getBytes(StandardCharsets.US_ASCII)).put((byte) '\n');
+        }
+        return text;
+    }
+
+    /**
+     * Benchmarks decoding a batch of values from their string form, which only recovers (rounded) amounts rather than
+     * banknotes.
+     */
+    @Benchmark
+    public double[] benchmarkDecodeString() {
+        text.rewind();
+
+        double[] amounts = new double[size];
+        byte[] line = new byte[32];
+        for (int i = 0; i < size; i++) {
+            int length = 0;
+            for (byte b = text.get(); b != '\n'; b = text.get()) {
+                line[length++] = b;
+            }
+            amounts[i] = Double.parseDouble(new String(line, 0, length, StandardCharsets.US_ASCII));
+        }
+
+        return amounts;
+    }
+}
@@ -0,0 +1,375 @@
+package com.progressoft.samples;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import static com.progressoft.samples.Money.DENOMINATIONS;
+
+/**
+ * Records metrics of the {@link Money} operations ({@link Money#plus(Money)}, {@link Money#minus(Money)} and
+ * {@link Money#minusComplex(Money)}), along with the banknotes given out by the drawers ({@link CashDrawer} and
+ * {@link ConcurrentCashDrawer}), exposed through JMX as {@link MoneyMetrics#OBJECT_NAME}.
+ * <p>
+ * Instrumentation is disabled by default and enabled through the {@code com.progressoft.samples.MoneyMetrics.enabled}
+ * system property, read once. When disabled, every recording method returns immediately on a constant, hence, the JIT
+ * compiler removes the instrumentation (clock reads included) from the operations altogether.
+ * <p>
+ * When enabled, counters are striped ({@link LongAdder}) so that concurrent operations do not contend on them, and
+ * latencies are recorded into histograms of power of two buckets, which take a fixed amount of memory.
+ */
+public final class MoneyMetrics implements MoneyMetricsMXBean {
+    public static final String OBJECT_NAME = "com.progressoft.samples:type=MoneyMetrics";
+
+    static final boolean ENABLED = Boolean.getBoolean("com.progressoft.samples.MoneyMetrics.enabled");
+
+    // The largest number of distinct shortfalls labelled, which bounds the memory held by failure counts
+    private static final int MAX_SHORTFALLS = 256;
+
+    private static final String OTHER_SHORTFALL = "other";
+
+    /**
+     * The instrumented operations.
+     */
+    enum Operation {
+        PLUS("plus"), MINUS("minus"), MINUS_COMPLEX("minusComplex");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final MoneyMetrics INSTANCE = new MoneyMetrics();
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+            } catch (InstanceAlreadyExistsException e) {
+                // Registered by another class loader, which keeps its own metrics
+            } catch (JMException e) {
+                throw new IllegalStateException("Could not register money metrics", e);
+            }
+        }
+    }
+
+    private final Histogram[] latencies = new Histogram[Operation.values().length];
+
+    private final LongAdder[] failures = new LongAdder[Operation.values().length];
+
+    private final ConcurrentMap<Long, LongAdder> failuresByShortfall = new ConcurrentHashMap<>();
+
+    private final LongAdder otherFailures = new LongAdder();
+
+    private final LongAdder[] depletions = new LongAdder[DENOMINATIONS.length];
+
+    private final AtomicIntegerArray remaining = new AtomicIntegerArray(DENOMINATIONS.length);
+
+    private MoneyMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new Histogram();
+            failures[i] = new LongAdder();
+        }
+
+        for (int i = 0; i < depletions.length; i++) {
+            depletions[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Fetches the metrics of the Money operations, regardless of whether they are registered with JMX.
+     *
+     * @return The metrics of this class loader
+     */
+    public static MoneyMetrics metrics() {
+        return INSTANCE;
+    }
+
+    /**
+     * Reads the clock at the start of an operation.
+     *
+     * @return The current time in nanoseconds, or zero if instrumentation is disabled
+     */
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a successful operation.
+     *
+     * @param operation The operation
+     * @param start     The start time of the operation, as returned by {@link MoneyMetrics#start()}
+     */
+    static void record(Operation operation, long start) {
+        if (!ENABLED) {
+            return;
+        }
+
+        INSTANCE.latencies[operation.ordinal()].record(System.nanoTime() - start);
+    }
+
+    /**
+     * Records banknotes of a denomination given out by a drawer, along with the banknotes it left; banknotes are only
+     * tracked for the predefined denomination set ({@link DenominationSet#JOD}).
+     *
+     * @param denominationSet The denomination set of the drawer
+     * @param index           The denomination index within the denomination set
+     * @param before          The number of banknotes of the denomination the drawer held before giving them out
+     * @param after           The number of banknotes of the denomination the drawer holds after giving them out
+     */
+    static void recordWithdrawal(DenominationSet denominationSet, int index, int before, int after) {
+        if (!ENABLED || denominationSet != DenominationSet.JOD) {
+            return;
+        }
+
+        if (after == 0 && before != 0) {
+            INSTANCE.depletions[index].increment();
+        }
+
+        INSTANCE.remaining.lazySet(index, after);
+    }
+
+    /**
+     * Records a deduction that failed due to insufficient change, whose shortfall is only computed (and labelled) when
+     * that is cheap (see {@link ChangeMaker#isShortfallBounded(long)}), otherwise it is counted under {@code other}.
+     *
+     * @param operation       The operation
+     * @param start           The start time of the operation, as returned by {@link MoneyMetrics#start()}
+     * @param denominationSet The denomination set of the operation
+     * @param available       The available banknote counts, indexed by denomination
+     * @param amount          The amount of change that could not be given in minor units
+     */
+    static void recordFailure(Operation operation, long start, DenominationSet denominationSet, int[] available,
+                              long amount) {
+        if (!ENABLED) {
+            return;
+        }
+
+        ChangeMaker changeMaker = denominationSet.changeMaker();
+        long shortfall = changeMaker.isShortfallBounded(amount) ? changeMaker.shortfall(available, amount) : -1;
+
+        recordFailure(operation, start, denominationSet, shortfall);
+    }
+
+    /**
+     * Records an operation that failed due to insufficient change; shortfalls are only labelled for the predefined
+     * denomination set ({@link DenominationSet#JOD}), those of other sets are counted under {@code other}.
+     *
+     * @param operation       The operation
+     * @param start           The start time of the operation, as returned by {@link MoneyMetrics#start()}
+     * @param denominationSet The denomination set of the operation
+     * @param shortfall       The missing amount in minor units, negative if unknown (counted under {@code other})
+     */
+    static void recordFailure(Operation operation, long start, DenominationSet denominationSet, long shortfall) {
+        if (!ENABLED) {
+            return;
+        }
+
+        record(operation, start);
+        INSTANCE.failures[operation.ordinal()].increment();
+
+        boolean labelled = denominationSet == DenominationSet.JOD && shortfall >= 0;
+
+        LongAdder counter = labelled ? INSTANCE.failuresByShortfall.get(shortfall) : null;
+        if (counter == null && labelled && INSTANCE.failuresByShortfall.size() < MAX_SHORTFALLS) {
+            counter = INSTANCE.failuresByShortfall.computeIfAbsent(shortfall, key -> new LongAdder());
+        }
+
+        (counter != null ? counter : INSTANCE.otherFailures).increment();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return ENABLED;
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        return byOperation(Histogram::count);
+    }
+
+    @Override
+    public Map<String, Long> getFailureCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+
+        for (Operation operation : Operation.values()) {
+            counts.put(operation.label, failures[operation.ordinal()].sum());
+        }
+
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getFailuresByShortfall() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+
+        failuresByShortfall.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> counts.put(label(entry.getKey()), entry.getValue().sum()));
+
+        if (otherFailures.sum() != 0) {
+            counts.put(OTHER_SHORTFALL, otherFailures.sum());
+        }
+
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getMeanLatencyNanos() {
+        Map<String, Double> means = new LinkedHashMap<>();
+
+        for (Operation operation : Operation.values()) {
+            means.put(operation.label, latencies[operation.ordinal()].mean());
+        }
+
+        return means;
+    }
+
+    @Override
+    public Map<String, Long> getP50LatencyNanos() {
+        return byOperation(histogram -> histogram.percentile(0.5));
+    }
+
+    @Override
+    public Map<String, Long> getP99LatencyNanos() {
+        return byOperation(histogram -> histogram.percentile(0.99));
+    }
+
+    @Override
+    public Map<String, Long> getP999LatencyNanos() {
+        return byOperation(histogram -> histogram.percentile(0.999));
+    }
+
+    @Override
+    public Map<String, Long> getDepletions() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+
+        for (int i = 0; i < depletions.length; i++) {
+            counts.put(label(DENOMINATIONS[i]), depletions[i].sum());
+        }
+
+        return counts;
+    }
+
+    @Override
+    public Map<String, Integer> getRemainingBanknotes() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+
+        for (int i = 0; i < remaining.length(); i++) {
+            counts.put(label(DENOMINATIONS[i]), remaining.get(i));
+        }
+
+        return counts;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i].reset();
+            failures[i].reset();
+        }
+
+        failuresByShortfall.clear();
+        otherFailures.reset();
+
+        for (int i = 0; i < depletions.length; i++) {
+            depletions[i].reset();
+            remaining.set(i, 0);
+        }
+    }
+
+    private Map<String, Long> byOperation(ToLongFunction<Histogram> metric) {
+        Map<String, Long> values = new LinkedHashMap<>();
+
+        for (Operation operation : Operation.values()) {
+            values.put(operation.label, metric.applyAsLong(latencies[operation.ordinal()]));
+        }
+
+        return values;
+    }
+
+    private static String label(long piasters) {
+        return DenominationSet.JOD.format(piasters);
+    }
+
+    /**
+     * Counts latencies into power of two buckets, bucket b holding the latencies below 2^b nanoseconds (and not below
+     * 2^(b-1)).
+     */
+    private static final class Histogram {
+        private final LongAdder[] buckets = new LongAdder[Long.SIZE];
+
+        private final LongAdder total = new LongAdder();
+
+        private Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        private void record(long nanos) {
+            nanos = Math.max(0, nanos);
+
+            buckets[Long.SIZE - Long.numberOfLeadingZeros(nanos)].increment();
+            total.add(nanos);
+        }
+
+        private long count() {
+            long count = 0;
+
+            for (LongAdder bucket : buckets) {
+                count += bucket.sum();
+            }
+
+            return count;
+        }
+
+        private double mean() {
+            long count = count();
+
+            return count == 0 ? 0 : (double) total.sum() / count;
+        }
+
+        private long percentile(double quantile) {
+            long[] counts = new long[buckets.length];
+            long count = 0;
+
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i].sum();
+                count += counts[i];
+            }
+
+            // The rank of the percentile among the recorded latencies, starting at 1
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+
+                if (seen >= rank && seen != 0) {
+                    return i == 0 ? 0 : (1L << i) - 1;
+                }
+            }
+
+            return 0;
+        }
+
+        private void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+
+            total.reset();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.progressoft.samples;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.progressoft.samples.Money.*;
+
+
+/**
+ * Benchmarks the cost of the instrumentation of the Money operations, each operation being measured in a JVM with the
+ * metrics disabled (the default) and in a JVM with the metrics enabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 3, time = 1)
+public class MoneyMetricsBenchmark {
+    private static final String ENABLED = "-Dcom.progressoft.samples.MoneyMetrics.enabled=true";
+
+    private final Money drawer = sum(OneDinar.times(5), FiftyPiasters.times(5), TwentyFivePiasters.times(5));
+
+    private final Money price = FivePiasters.times(3);
+
+    private final Money change = sum(OneDinar, TwentyFivePiasters);
+
+    @Benchmark
+    @Fork(1)
+    public Money benchmarkPlusDisabled() {
+        return drawer.plus(price);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = ENABLED)
+    public Money benchmarkPlusEnabled() {
+        return drawer.plus(price);
+    }
+
+    @Benchmark
+    @Fork(1)
+    public Money benchmarkMinusDisabled() {
+        return drawer.minus(change);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = ENABLED)
+    public Money benchmarkMinusEnabled() {
+        return drawer.minus(change);
+    }
+
+    /**
+     * Benchmarks a deduction failing due to insufficient change, which also computes the shortfall when enabled.
+     */
+    @Benchmark
+    @Fork(1)
+    public Money benchmarkFailedMinusDisabled() {
+        return drawer.tryMinus(price);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = ENABLED)
+    public Money benchmarkFailedMinusEnabled() {
+        return drawer.tryMinus(price);
+    }
+}
@@ -0,0 +1,89 @@
+package com.progressoft.samples;
+
+import java.util.Map;
+
+/**
+ * Exposes the metrics of the {@link Money} operations and of the drawers through JMX, see {@link MoneyMetrics}.
+ * <p>
+ * Operations are labelled {@code plus}, {@code minus} and {@code minusComplex}, and banknotes by their value (e.g.
+ * {@code 0.25}). Latencies are reported as the upper bound of the power of two bucket holding the percentile.
+ */
+public interface MoneyMetricsMXBean {
+    /**
+     * Checks whether the operations are instrumented.
+     *
+     * @return true if metrics are being recorded, otherwise false (in which case every metric stays at zero)
+     */
+    boolean isEnabled();
+
+    /**
+     * Fetches the number of calls of each operation, including failed ones.
+     *
+     * @return The number of calls per operation
+     */
+    Map<String, Long> getOperationCounts();
+
+    /**
+     * Fetches the number of calls of each operation that failed due to insufficient change.
+     *
+     * @return The number of failures per operation
+     */
+    Map<String, Long> getFailureCounts();
+
+    /**
+     * Fetches the number of failures due to insufficient change, per missing amount; amounts beyond the first few
+     * hundred distinct ones are counted under {@code other}.
+     *
+     * @return The number of failures per shortfall
+     */
+    Map<String, Long> getFailuresByShortfall();
+
+    /**
+     * Fetches the mean latency of each operation.
+     *
+     * @return The mean latency in nanoseconds per operation
+     */
+    Map<String, Double> getMeanLatencyNanos();
+
+    /**
+     * Fetches the median latency of each operation.
+     *
+     * @return The 50th percentile latency in nanoseconds per operation
+     */
+    Map<String, Long> getP50LatencyNanos();
+
+    /**
+     * Fetches the 99th percentile latency of each operation.
+     *
+     * @return The 99th percentile latency in nanoseconds per operation
+     */
+    Map<String, Long> getP99LatencyNanos();
+
+    /**
+     * Fetches the 99.9th percentile latency of each operation.
+     *
+     * @return The 99.9th percentile latency in nanoseconds per operation
+     */
+    Map<String, Long> getP999LatencyNanos();
+
+    /**
+     * Fetches the number of times a drawer ({@link CashDrawer} or {@link ConcurrentCashDrawer}) gave out its last
+     * banknote of each denomination (of the predefined denomination set).
+     *
+     * @return The number of depletions per banknote
+     */
+    Map<String, Long> getDepletions();
+
+    /**
+     * Fetches the number of banknotes of each denomination (of the predefined denomination set) left in the drawer that
+     * most recently gave out banknotes of that denomination.
+     *
+     * @return The number of remaining banknotes per banknote
+     */
+    Map<String, Integer> getRemainingBanknotes();
+
+    /**
+     * Resets every metric to zero.
+     */
+    void reset();
+}
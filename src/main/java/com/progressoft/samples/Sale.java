@@ -0,0 +1,59 @@
+package com.progressoft.samples;
+
+/**
+ * Represents a sale awaiting processing, that is, the price of the item sold and the banknotes inserted by the
+ * customer; see {@link CashDrawer#processSales(java.util.List)}.
+ * <p>
+ * Instances are immutable.
+ */
+public final class Sale {
+    private final Money price;
+
+    private final Money inserted;
+
+    /**
+     * Constructs a new Sale.
+     *
+     * @param price    The price of the item sold, treated as a decimal value
+     * @param inserted The banknotes inserted by the customer
+     * @throws IllegalArgumentException If the price and the inserted banknotes belong to different denomination sets
+     */
+    public Sale(Money price, Money inserted) {
+        price.denominationSet().check(inserted);
+
+        this.price = price;
+        this.inserted = inserted;
+    }
+
+    /**
+     * Fetches the price of this sale.
+     *
+     * @return The price of the item sold
+     */
+    public Money price() {
+        return price;
+    }
+
+    /**
+     * Fetches the banknotes inserted by the customer.
+     *
+     * @return The inserted banknotes
+     */
+    public Money inserted() {
+        return inserted;
+    }
+
+    /**
+     * Fetches the denomination set of this sale.
+     *
+     * @return The {@link DenominationSet} of the price and the inserted banknotes
+     */
+    public DenominationSet denominationSet() {
+        return price.denominationSet();
+    }
+
+    @Override
+    public String toString() {
+        return price + " paid with " + inserted;
+    }
+}
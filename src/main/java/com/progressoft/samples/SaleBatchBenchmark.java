@@ -0,0 +1,106 @@
+package com.progressoft.samples;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.progressoft.samples.Money.*;
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 3, time = 1)
+@Fork(1)
+public class SaleBatchBenchmark {
+    private static final int SALES = 256;
+
+    private static final Money[] PRICES = {TwentyFivePiasters.plus(TenPiasters), FiftyPiasters,
+            FiftyPiasters.plus(TwentyFivePiasters), OneDinar.plus(TwentyFivePiasters), OneDinar.times(2)};
+
+    private static final Money[] BANKNOTES = {TwentyFivePiasters, FiftyPiasters, OneDinar, OneDinar, FiveDinars};
+
+    private static final Money DRAWER = sum(FivePiasters.times(50), TenPiasters.times(50),
+            TwentyFivePiasters.times(50), FiftyPiasters.times(20), OneDinar.times(20));
+
+    // The number of sales processed per call to CashDrawer.processSales
+    @Param({"1", "16", "256"})
+    public int batchSize;
+
+    private List<Sale> sales;
+
+    // The change of each sale, as an amount
+    private Money[] changes;
+
+    private List<List<Sale>> batches;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        sales = new ArrayList<>(SALES);
+        changes = new Money[SALES];
+
+        for (int i = 0; i < SALES; i++) {
+            Money price = PRICES[random.nextInt(PRICES.length)];
+            Money paid = Zero;
+
+            while (paid.amountInPiasters() < price.amountInPiasters()) {
+                paid = paid.plus(BANKNOTES[random.nextInt(BANKNOTES.length)]);
+            }
+
+            sales.add(new Sale(price, paid));
+            changes[i] = OnePiaster.times((int) (paid.amountInPiasters() - price.amountInPiasters()));
+        }
+
+        batches = new ArrayList<>();
+        for (int from = 0; from < SALES; from += batchSize) {
+            batches.add(sales.subList(from, Math.min(from + batchSize, SALES)));
+        }
+    }
+
+    /**
+     * Benchmarks the number of sales processed per second by {@link CashDrawer#processSales(List)}, in batches.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SALES)
+    public int benchmarkBatch() {
+        CashDrawer drawer = new CashDrawer(DRAWER);
+        int completed = 0;
+
+        for (List<Sale> batch : batches) {
+            for (SaleOutcome outcome : drawer.processSales(batch)) {
+                if (outcome.isCompleted()) {
+                    completed++;
+                }
+            }
+        }
+
+        return completed;
+    }
+
+    /**
+     * Benchmarks the number of sales processed per second by sequential {@link Money#plus(Money)} and
+     * {@link Money#tryMinus(Money)} calls on an immutable drawer (independent of the batch size).
+     */
+    @Benchmark
+    @OperationsPerInvocation(SALES)
+    public int benchmarkSequential() {
+        Money drawer = DRAWER;
+        int completed = 0;
+
+        for (int i = 0; i < SALES; i++) {
+            Money next = drawer.plus(sales.get(i).inserted()).tryMinus(changes[i]);
+
+            if (next != null) {
+                drawer = next;
+                completed++;
+            }
+        }
+
+        return completed;
+    }
+}
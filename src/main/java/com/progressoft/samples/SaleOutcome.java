@@ -0,0 +1,81 @@
+package com.progressoft.samples;
+
+/**
+ * Represents the outcome of a processed {@link Sale}, along with the banknotes returned to the customer.
+ * <p>
+ * Instances are immutable.
+ */
+public final class SaleOutcome {
+    /**
+     * The status of a processed sale.
+     */
+    public enum Status {
+        /**
+         * The drawer took the inserted banknotes and gave the change.
+         */
+        COMPLETED,
+
+        /**
+         * The inserted banknotes did not cover the price, they were returned.
+         */
+        INSUFFICIENT_CREDIT,
+
+        /**
+         * No combination of the drawer's banknotes made up the change, the inserted banknotes were returned.
+         */
+        INSUFFICIENT_CHANGE
+    }
+
+    private final Sale sale;
+
+    private final Status status;
+
+    private final Money returned;
+
+    SaleOutcome(Sale sale, Status status, Money returned) {
+        this.sale = sale;
+        this.status = status;
+        this.returned = returned;
+    }
+
+    /**
+     * Fetches the processed sale.
+     *
+     * @return The {@link Sale} this outcome belongs to
+     */
+    public Sale sale() {
+        return sale;
+    }
+
+    /**
+     * Fetches the status of the sale.
+     *
+     * @return The {@link Status} of the sale
+     */
+    public Status status() {
+        return status;
+    }
+
+    /**
+     * Checks whether the sale was completed.
+     *
+     * @return true if the drawer took the inserted banknotes and gave the change, otherwise false
+     */
+    public boolean isCompleted() {
+        return status == Status.COMPLETED;
+    }
+
+    /**
+     * Fetches the banknotes returned to the customer.
+     *
+     * @return The change if the sale was completed, otherwise the inserted banknotes
+     */
+    public Money returned() {
+        return returned;
+    }
+
+    @Override
+    public String toString() {
+        return status + ", returned " + returned;
+    }
+}
@@ -0,0 +1,303 @@
+package com.progressoft.samples;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Replays a transaction log of sales onto a {@link CashDrawer}, in place, reporting discrepancies as it goes.
+ * <p>
+ * The log is a text file holding one sale per line, in the form {@code price;inserted;change}, where the price is an
+ * amount in dinars (e.g. {@code 0.75}), and the inserted banknotes and the returned change are lists of banknote values
+ * separated by spaces (e.g. {@code 1.00 0.25}), possibly empty. Blank lines are ignored. Amounts are in the major unit
+ * of the denomination set of the drawer, with up to as many decimals as its minor unit has digits.
+ * <p>
+ * The log is read from a channel in large chunks into a single reusable buffer, and each record is parsed directly
+ * from that buffer into primitive counts, hence, memory use is constant regardless of the size of the log, and no
+ * object is created per record. A record is applied by adding the inserted banknotes to the drawer and removing the
+ * returned ones; records which cannot be applied as logged are reported to a {@link DiscrepancyListener}, along with
+ * their line number and byte offset, and replay carries on with the next record.
+ * <p>
+ * This class is not thread-safe, a replay must not run concurrently with other operations on the same drawer.
+ */
+public final class TransactionLogReplay {
+    // The size of the chunks the log is read in, which is also the longest supported line
+    static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    // The largest number of digits of an amount, which keeps amounts in minor units within a long
+    private static final int MAX_DIGITS = 18;
+
+    /**
+     * The kind of discrepancy a logged sale may exhibit.
+     */
+    public enum Discrepancy {
+        /**
+         * The record could not be parsed (or holds an unknown banknote), it is skipped entirely.
+         */
+        MALFORMED_RECORD,
+        /**
+         * The inserted banknotes minus the returned change do not add up to the price, the record is still applied.
+         */
+        MISMATCHED_AMOUNT,
+        /**
+         * The drawer does not hold the returned banknotes, although it could have given the same change otherwise;
+         * the inserted banknotes are applied, the change is not (which would make counts negative).
+         */
+        NEGATIVE_COUNT,
+        /**
+         * No combination of the drawer's banknotes makes up the returned change; the inserted banknotes are applied,
+         * the change is not.
+         */
+        IMPOSSIBLE_CHANGE
+    }
+
+    /**
+     * Receives the discrepancies found while replaying a transaction log.
+     */
+    @FunctionalInterface
+    public interface DiscrepancyListener {
+        /**
+         * Invoked for each discrepancy, in log order; a record may exhibit more than one.
+         *
+         * @param discrepancy The kind of discrepancy
+         * @param line        The line number of the record, starting at 1
+         * @param offset      The byte offset of the record within the log
+         */
+        void onDiscrepancy(Discrepancy discrepancy, long line, long offset);
+    }
+
+    private final CashDrawer drawer;
+
+    private final DenominationSet denominationSet;
+
+    private final DiscrepancyListener listener;
+
+    private final ByteBuffer buffer;
+
+    // Reusable counts of the record being replayed, indexed by denomination
+    private final int[] inserted;
+    private final int[] change;
+
+    // The position of the parser within the buffer
+    private int cursor;
+
+    private long records;
+
+    private TransactionLogReplay(CashDrawer drawer, DiscrepancyListener listener, int bufferSize) {
+        this.drawer = drawer;
+        this.denominationSet = drawer.denominationSet();
+        this.listener = listener;
+        this.inserted = new int[denominationSet.size()];
+        this.change = new int[denominationSet.size()];
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Replays a transaction log file onto a drawer.
+     *
+     * @param log      The path of the transaction log
+     * @param drawer   The drawer to apply the sales to, typically holding the banknotes at the start of the log
+     * @param listener The listener notified of every discrepancy
+     * @return The number of records replayed, including those exhibiting discrepancies
+     * @throws IOException If the log could not be read
+     */
+    public static long replay(Path log, CashDrawer drawer, DiscrepancyListener listener) throws IOException {
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            return replay(channel, drawer, listener);
+        }
+    }
+
+    /**
+     * Replays a transaction log onto a drawer, reading the channel up to its end.
+     *
+     * @param channel  The channel to read the transaction log from, left open
+     * @param drawer   The drawer to apply the sales to, typically holding the banknotes at the start of the log
+     * @param listener The listener notified of every discrepancy
+     * @return The number of records replayed, including those exhibiting discrepancies
+     * @throws IOException If the log could not be read
+     */
+    public static long replay(ReadableByteChannel channel, CashDrawer drawer, DiscrepancyListener listener)
+            throws IOException {
+        return replay(channel, drawer, listener, DEFAULT_BUFFER_SIZE);
+    }
+
+    static long replay(ReadableByteChannel channel, CashDrawer drawer, DiscrepancyListener listener, int bufferSize)
+            throws IOException {
+        return new TransactionLogReplay(drawer, listener, bufferSize).replay(channel);
+    }
+
+    private long replay(ReadableByteChannel channel) throws IOException {
+        long line = 0;
+        // The offset within the log of the start of the buffer
+        long base = 0;
+        // Whether the rest of a line too long to fit in the buffer is being skipped
+        boolean skipping = false;
+
+        while (true) {
+            boolean end = channel.read(buffer) < 0;
+            buffer.flip();
+
+            int start = 0;
+            int limit = buffer.limit();
+
+            for (int i = 0; i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    if (skipping) {
+                        skipping = false;
+                    } else {
+                        apply(start, i, ++line, base + start);
+                    }
+
+                    start = i + 1;
+                }
+            }
+
+            if (end) {
+                if (start < limit && !skipping) {
+                    apply(start, limit, ++line, base + start);
+                }
+
+                return records;
+            }
+
+            if (start == 0 && limit == buffer.capacity() && !skipping) {
+                // The line does not fit in the buffer, it is reported once and skipped up to its end
+                records++;
+                listener.onDiscrepancy(Discrepancy.MALFORMED_RECORD, ++line, base);
+                skipping = true;
+            }
+
+            if (skipping) {
+                start = limit;
+            }
+
+            buffer.position(start);
+            buffer.compact();
+            base += start;
+        }
+    }
+
+    private void apply(int start, int end, long line, long offset) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+
+        if (start == end) {
+            return;
+        }
+
+        records++;
+        cursor = start;
+
+        long price = amount(end);
+        if (price < 0 || !separator(end) || !banknotes(end, inserted) || !separator(end)
+                || !banknotes(end, change) || cursor != end) {
+            listener.onDiscrepancy(Discrepancy.MALFORMED_RECORD, line, offset);
+            return;
+        }
+
+        long changeAmount = total(change);
+        if (total(inserted) - changeAmount != price) {
+            listener.onDiscrepancy(Discrepancy.MISMATCHED_AMOUNT, line, offset);
+        }
+
+        drawer.add(inserted);
+
+        if (!drawer.tryRemove(change)) {
+            listener.onDiscrepancy(
+                    drawer.canMakeChange(changeAmount) ? Discrepancy.NEGATIVE_COUNT : Discrepancy.IMPOSSIBLE_CHANGE,
+                    line,
+                    offset
+            );
+        }
+    }
+
+    private boolean separator(int end) {
+        if (cursor < end && buffer.get(cursor) == ';') {
+            cursor++;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Parses a list of banknote values separated by spaces, up to the next separator or the end of the record.
+     */
+    private boolean banknotes(int end, int[] counts) {
+        Arrays.fill(counts, 0);
+
+        while (true) {
+            while (cursor < end && buffer.get(cursor) == ' ') {
+                cursor++;
+            }
+
+            if (cursor == end || buffer.get(cursor) == ';') {
+                return true;
+            }
+
+            int index = denominationSet.indexOf(amount(end));
+            if (index < 0) {
+                return false;
+            }
+
+            counts[index]++;
+        }
+    }
+
+    /**
+     * Parses an amount in the major unit with up to as many decimals as the minor unit has digits, returning it in
+     * minor units, or -1 if it is not valid.
+     */
+    private long amount(int end) {
+        long piasters = 0;
+        int digits = 0;
+
+        while (cursor < end && isDigit(buffer.get(cursor))) {
+            if (++digits > MAX_DIGITS - denominationSet.fractionDigits()) {
+                return -1;
+            }
+
+            piasters = piasters * 10 + buffer.get(cursor++) - '0';
+        }
+
+        if (digits == 0) {
+            return -1;
+        }
+
+        piasters *= denominationSet.unitsPerMajor();
+
+        if (cursor < end && buffer.get(cursor) == '.') {
+            cursor++;
+
+            long scale = denominationSet.unitsPerMajor() / 10;
+            for (; scale > 0 && cursor < end && isDigit(buffer.get(cursor)); scale /= 10) {
+                piasters += scale * (buffer.get(cursor++) - '0');
+            }
+
+            if (cursor < end && isDigit(buffer.get(cursor))) {
+                return -1;
+            }
+        }
+
+        return piasters;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private long total(int[] counts) {
+        long sum = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            sum += denominationSet.denomination(i) * counts[i];
+        }
+
+        return sum;
+    }
+}
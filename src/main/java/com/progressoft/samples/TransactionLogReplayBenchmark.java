@@ -0,0 +1,106 @@
+package com.progressoft.samples;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.progressoft.samples.Money.*;
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2)
+@Warmup(iterations = 3, time = 2)
+@Fork(1)
+public class TransactionLogReplayBenchmark {
+    private static final int RECORDS = 1_000_000;
+
+    private static final Money[] BANKNOTES = {OnePiaster, FivePiasters, TenPiasters, TwentyFivePiasters, FiftyPiasters,
+            OneDinar, FiveDinars, TenDinars, TwentyDinars, FiftyDinars};
+
+    // Sales logged in turn: price, inserted banknotes and returned change
+    private static final String[] SALES = {
+            "0.75;1.00;0.25",
+            "0.50;0.25 0.25;",
+            "1.25;5.00;1.00 1.00 1.00 0.50 0.25",
+            "0.35;0.25 0.10;",
+            "2.50;1.00 1.00 0.50;",
+            "0.90;1.00;0.10",
+    };
+
+    private Path log;
+
+    @Setup
+    public void setup() throws IOException {
+        log = Files.createTempFile("transactions", ".log");
+
+        try (BufferedWriter writer = Files.newBufferedWriter(log, StandardCharsets.US_ASCII)) {
+            for (int i = 0; i < RECORDS; i++) {
+                writer.write(SALES[i % SALES.length]);
+                writer.newLine();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(log);
+    }
+
+    private static Money initial() {
+        return sum(TenPiasters.times(10), TwentyFivePiasters.times(10), FiftyPiasters.times(10), OneDinar.times(10));
+    }
+
+    /**
+     * Benchmarks the number of records replayed per second by streaming the log onto a drawer.
+     */
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public Money benchmarkStreamingReplay() throws IOException {
+        CashDrawer drawer = new CashDrawer(initial());
+        TransactionLogReplay.replay(log, drawer, (discrepancy, line, offset) -> {
+            throw new IllegalStateException(discrepancy + " at line " + line);
+        });
+
+        return drawer.toMoney();
+    }
+
+    /**
+     * Benchmarks the number of records replayed per second by loading the whole log, then folding it through
+     * {@link Money#plus(Money)} and {@link Money#minus(Money)}.
+     */
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public Money benchmarkLoadAndFold() throws IOException {
+        List<String> lines = Files.readAllLines(log, StandardCharsets.US_ASCII);
+        Money drawer = initial();
+
+        for (String line : lines) {
+            String[] fields = line.split(";", -1);
+
+            drawer = drawer.plus(sum(parse(fields[1])));
+            drawer = drawer.minus(sum(parse(fields[2])));
+        }
+
+        return drawer;
+    }
+
+    private static Money[] parse(String banknotes) {
+        if (banknotes.isEmpty()) {
+            return new Money[0];
+        }
+
+        return Arrays.stream(banknotes.split(" "))
+                .map(value -> Math.round(Double.parseDouble(value) * 100))
+                .map(piasters -> BANKNOTES[Arrays.binarySearch(DENOMINATIONS, piasters)])
+                .toArray(Money[]::new);
+    }
+}
@@ -0,0 +1,375 @@
+package com.progressoft.samples;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serves the customer sessions of a vending machine, all sharing the machine's {@link ConcurrentCashDrawer}.
+ * <p>
+ * A session holds the banknotes inserted by its customer until a product is selected, in which case the inserted
+ * banknotes are added to the drawer and the change is dispensed from the drawer's banknotes (the inserted ones
+ * included), or until the session is cancelled or left idle for longer than the timeout, in which case the inserted
+ * banknotes are returned.
+ * <p>
+ * Each session runs on its own thread, which carries out the session's operations one at a time, hence, the state of a
+ * session is confined to its thread, and waiting for the customer (or for the timeout) is a blocking wait. Sessions run
+ * on virtual threads when the runtime provides them (JDK 21 and later), otherwise on platform threads; see
+ * {@link VendingMachine#VIRTUAL_THREADS}. Sessions only ever lock through {@link ReentrantLock}, never through a
+ * monitor, which would pin a virtual thread to its carrier while held.
+ */
+public final class VendingMachine implements AutoCloseable {
+    /**
+     * Whether sessions run on virtual threads, which are looked up at runtime, as the default build targets JDK 17 (the
+     * jdk21 build profile targets JDK 21); false only when running on an earlier JDK.
+     */
+    public static final boolean VIRTUAL_THREADS = virtualThreadPerTaskExecutor() != null;
+
+    private final ConcurrentCashDrawer drawer;
+
+    private final Map<String, Money> catalog;
+
+    private final long timeoutNanos;
+
+    private final ExecutorService executor;
+
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new VendingMachine.
+     *
+     * @param drawer  The drawer shared by the sessions
+     * @param catalog The price of each product, of the drawer's denomination set
+     * @param timeout The longest a session may stay idle before it is cancelled
+     * @param unit    The unit of the timeout
+     * @throws IllegalArgumentException If the catalog is empty, if a price belongs to another denomination set, or if
+     *                                  the timeout is not positive
+     */
+    public VendingMachine(ConcurrentCashDrawer drawer, Map<String, Money> catalog, long timeout, TimeUnit unit) {
+        if (catalog.isEmpty()) {
+            throw new IllegalArgumentException("Argument catalog must hold at least one product");
+        }
+
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Argument timeout must be positive");
+        }
+
+        for (Money price : catalog.values()) {
+            drawer.denominationSet().check(price);
+        }
+
+        this.drawer = drawer;
+        this.catalog = Collections.unmodifiableMap(new HashMap<>(catalog));
+        this.timeoutNanos = unit.toNanos(timeout);
+        this.executor = newThreadPerTaskExecutor();
+    }
+
+    /**
+     * Creates an executor running each task on its own thread.
+     *
+     * @return An {@link ExecutorService} of virtual threads if available, otherwise of (daemon) platform threads
+     */
+    static ExecutorService newThreadPerTaskExecutor() {
+        Method factory = virtualThreadPerTaskExecutor();
+
+        try {
+            if (factory != null) {
+                return (ExecutorService) factory.invoke(null);
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create virtual threads", e);
+        }
+
+        return Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static Method virtualThreadPerTaskExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Opens a new session.
+     *
+     * @return A {@link Session} awaiting its customer
+     * @throws IllegalStateException If this machine is closed
+     */
+    public Session open() {
+        Session session = new Session();
+        sessions.add(session);
+
+        try {
+            if (closed) {
+                throw new RejectedExecutionException();
+            }
+
+            executor.execute(session::run);
+        } catch (RejectedExecutionException e) {
+            sessions.remove(session);
+            throw new IllegalStateException("Could not open session; machine is closed");
+        }
+
+        return session;
+    }
+
+    /**
+     * Fetches the number of sessions currently open.
+     *
+     * @return The number of open sessions
+     */
+    public int openSessions() {
+        return sessions.size();
+    }
+
+    /**
+     * Fetches the drawer of this machine.
+     *
+     * @return The {@link ConcurrentCashDrawer} shared by the sessions
+     */
+    public ConcurrentCashDrawer drawer() {
+        return drawer;
+    }
+
+    /**
+     * Closes this machine, cancelling the open sessions and waiting for them to return the inserted banknotes.
+     */
+    @Override
+    public void close() {
+        closed = true;
+
+        for (Session session : sessions) {
+            session.cancelLater();
+        }
+
+        executor.shutdown();
+
+        boolean interrupted = false;
+        while (!executor.isTerminated()) {
+            try {
+                executor.awaitTermination(timeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Represents the session of a customer, from the first inserted banknote to the sale (or the return of the inserted
+     * banknotes).
+     * <p>
+     * Operations may be called from any thread, they are carried out in order by the session's thread, the caller
+     * waiting for the outcome.
+     */
+    public final class Session {
+        private final BlockingQueue<Runnable> operations = new LinkedBlockingQueue<>();
+
+        private final CompletableFuture<Money> returned = new CompletableFuture<>();
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        // Guarded by 'lock', whether operations are no longer accepted
+        private boolean ended;
+
+        // Confined to the session's thread
+        private Money credit = drawer.denominationSet().zero();
+
+        private Session() {
+        }
+
+        /**
+         * Inserts banknotes.
+         *
+         * @param banknotes The inserted banknotes
+         * @return The banknotes inserted so far
+         * @throws IllegalArgumentException If the banknotes belong to another denomination set
+         * @throws IllegalStateException    If this session is closed
+         */
+        public Money insert(Money banknotes) {
+            return call(() -> {
+                drawer.denominationSet().check(banknotes);
+                credit = credit.plus(banknotes);
+
+                return credit;
+            });
+        }
+
+        /**
+         * Sells a product, dispensing the change and closing this session.
+         * <p>
+         * If the sale fails, this session stays open, the customer may then insert more banknotes, select another
+         * product or cancel.
+         *
+         * @param product The name of the product
+         * @return The banknotes of the change
+         * @throws IllegalArgumentException    If the product is not in the catalog
+         * @throws IllegalStateException       If the inserted banknotes do not cover the price, or if this session is
+         *                                     closed
+         * @throws InsufficientChangeException If the drawer cannot give the change
+         */
+        public Money select(String product) {
+            return call(() -> {
+                Money price = catalog.get(product);
+
+                if (price == null) {
+                    throw new IllegalArgumentException("Argument product must be in the catalog");
+                }
+
+                if (credit.amountInPiasters() < price.amountInPiasters()) {
+                    throw new IllegalStateException("Could not perform sale; insufficient credit");
+                }
+
+                // The customer's banknotes may be part of the change, they only reach the drawer if the sale succeeds
+                Money change = drawer.exchange(credit, credit.amountInPiasters() - price.amountInPiasters());
+                end(change);
+
+                return change;
+            });
+        }
+
+        /**
+         * Cancels this session, returning the inserted banknotes.
+         *
+         * @return The inserted banknotes
+         * @throws IllegalStateException If this session is closed
+         */
+        public Money cancel() {
+            return call(() -> {
+                Money refund = credit;
+                end(refund);
+
+                return refund;
+            });
+        }
+
+        /**
+         * Checks whether this session accepts operations.
+         *
+         * @return true if this session is open, otherwise false
+         */
+        public boolean isOpen() {
+            lock.lock();
+            try {
+                return !ended;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Fetches the banknotes returned to the customer when this session closes.
+         *
+         * @return A {@link CompletableFuture} completed with the change of the sale, or with the inserted banknotes if
+         * this session was cancelled or timed out
+         */
+        public CompletableFuture<Money> returned() {
+            return returned;
+        }
+
+        private Money call(Supplier<Money> operation) {
+            CompletableFuture<Money> result = new CompletableFuture<>();
+
+            lock.lock();
+            try {
+                if (ended) {
+                    throw new IllegalStateException("Could not perform operation; session is closed");
+                }
+
+                operations.add(() -> {
+                    try {
+                        if (!isOpen()) {
+                            throw new IllegalStateException("Could not perform operation; session is closed");
+                        }
+
+                        result.complete(operation.get());
+                    } catch (RuntimeException e) {
+                        result.completeExceptionally(e);
+                    }
+                });
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                throw (RuntimeException) e.getCause();
+            }
+        }
+
+        private void cancelLater() {
+            lock.lock();
+            try {
+                if (!ended) {
+                    operations.add(() -> end(credit));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void run() {
+            try {
+                while (isOpen()) {
+                    Runnable operation = operations.poll(timeoutNanos, TimeUnit.NANOSECONDS);
+
+                    if (operation == null) {
+                        end(credit);
+                    } else {
+                        operation.run();
+                    }
+                }
+            } catch (InterruptedException e) {
+                end(credit);
+            }
+        }
+
+        /**
+         * Closes this session, unless already closed, then fails the operations submitted in the meantime.
+         */
+        private void end(Money returnedBanknotes) {
+            lock.lock();
+            try {
+                if (ended) {
+                    return;
+                }
+
+                ended = true;
+            } finally {
+                lock.unlock();
+            }
+
+            sessions.remove(this);
+            returned.complete(returnedBanknotes);
+
+            for (Runnable operation; (operation = operations.poll()) != null; ) {
+                operation.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.progressoft.samples;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+
+import static com.progressoft.samples.Money.*;
+
+/**
+ * Load-tests a {@link VendingMachine} with many concurrent customers, each on its own thread, reporting throughput and
+ * latency percentiles.
+ * <p>
+ * All customers start at once, open a session, then insert random banknotes with a random think time before each one
+ * until their product is covered, and finally select it; one in a hundred walks away instead, leaving the session to
+ * time out. A think time of zero measures the throughput of the machine under saturation.
+ * <p>
+ * Run with {@code java -cp target/benchmarks.jar com.progressoft.samples.VendingMachineLoadHarness [customers]
+ * [think time in milliseconds] [rounds]}, on JDK 21 or later for virtual threads.
+ */
+public final class VendingMachineLoadHarness {
+    private static final Money[] BANKNOTES = {TwentyFivePiasters, FiftyPiasters, OneDinar, FiveDinars};
+
+    // The largest number of banknotes a customer inserts, as many quarters cover the dearest product
+    private static final int MAX_INSERTS = 10;
+
+    private final int customers;
+
+    private final long thinkMillis;
+
+    private VendingMachineLoadHarness(int customers, long thinkMillis) {
+        this.customers = customers;
+        this.thinkMillis = thinkMillis;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int customers = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        long thinkMillis = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        System.out.printf("%d customers, %d ms think time, virtual threads: %b%n", customers, thinkMillis,
+                VendingMachine.VIRTUAL_THREADS);
+
+        for (int round = 1; round <= rounds; round++) {
+            System.out.printf("Round %d%s%n", round, round == 1 ? " (warm-up)" : "");
+            new VendingMachineLoadHarness(customers, thinkMillis).run(round);
+        }
+    }
+
+    private void run(long seed) throws InterruptedException {
+        Map<String, Money> catalog = new HashMap<>();
+        catalog.put("water", FiftyPiasters.plus(TwentyFivePiasters));
+        catalog.put("juice", OneDinar.plus(TwentyFivePiasters));
+        catalog.put("sandwich", OneDinar.times(2).plus(FiftyPiasters));
+
+        Money initial = sum(TwentyFivePiasters.times(customers * 4), FiftyPiasters.times(customers * 2),
+                OneDinar.times(customers * 4));
+        String[] products = catalog.keySet().toArray(new String[0]);
+
+        long[] insertLatencies = new long[customers * MAX_INSERTS];
+        long[] selectLatencies = new long[customers];
+        AtomicInteger inserts = new AtomicInteger();
+        AtomicInteger selects = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        AtomicInteger abandoned = new AtomicInteger();
+        AtomicInteger timedOut = new AtomicInteger();
+        LongAccumulator peak = new LongAccumulator(Math::max, 0);
+
+        SplittableRandom random = new SplittableRandom(seed);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch served = new CountDownLatch(customers);
+        CountDownLatch done = new CountDownLatch(customers);
+
+        ConcurrentCashDrawer drawer = new ConcurrentCashDrawer(initial);
+
+        try (VendingMachine machine = new VendingMachine(drawer, catalog, 1, TimeUnit.SECONDS)) {
+            ExecutorService threads = VendingMachine.newThreadPerTaskExecutor();
+
+            for (int i = 0; i < customers; i++) {
+                SplittableRandom customerRandom = random.split();
+
+                threads.execute(() -> {
+                    boolean walkedAway = false;
+
+                    try {
+                        start.await();
+
+                        VendingMachine.Session session = machine.open();
+                        peak.accumulate(machine.openSessions());
+
+                        String product = products[customerRandom.nextInt(products.length)];
+                        long price = catalog.get(product).amountInPiasters();
+                        long credit = 0;
+
+                        while (credit < price) {
+                            Thread.sleep(customerRandom.nextLong(2 * thinkMillis + 1));
+
+                            Money banknote = BANKNOTES[customerRandom.nextInt(BANKNOTES.length)];
+                            long begin = System.nanoTime();
+                            credit = session.insert(banknote).amountInPiasters();
+                            insertLatencies[inserts.getAndIncrement()] = System.nanoTime() - begin;
+                        }
+
+                        if (customerRandom.nextInt(100) == 0) {
+                            abandoned.incrementAndGet();
+                            walkedAway = true;
+                            served.countDown();
+                            session.returned().join();
+                            return;
+                        }
+
+                        long begin = System.nanoTime();
+                        try {
+                            session.select(product);
+                        } catch (InsufficientChangeException e) {
+                            failures.incrementAndGet();
+                            session.cancel();
+                        }
+                        selectLatencies[selects.getAndIncrement()] = System.nanoTime() - begin;
+                    } catch (IllegalStateException e) {
+                        // The machine was too busy to serve the session before it timed out
+                        timedOut.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        if (!walkedAway) {
+                            served.countDown();
+                        }
+
+                        done.countDown();
+                    }
+                });
+            }
+
+            long begin = System.nanoTime();
+            start.countDown();
+            served.await();
+            long elapsed = System.nanoTime() - begin;
+
+            // Abandoned sessions still have to time out
+            done.await();
+
+            threads.shutdown();
+
+            int operations = inserts.get() + selects.get();
+            System.out.printf(
+                    "  %d customers served in %.2f s, %.0f sessions/s, %.0f operations/s, peak open sessions: %d%n",
+                    customers, elapsed / 1e9, customers / (elapsed / 1e9), operations / (elapsed / 1e9), peak.get());
+            System.out.printf("  insufficient change: %d, abandoned (timed out): %d, timed out while served: %d%n",
+                    failures.get(), abandoned.get(), timedOut.get());
+            print("insert", Arrays.copyOf(insertLatencies, inserts.get()));
+            print("select", Arrays.copyOf(selectLatencies, selects.get()));
+        }
+    }
+
+    private static void print(String operation, long[] latencies) {
+        Arrays.sort(latencies);
+
+        System.out.printf("  %s latency (us): p50 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n", operation,
+                percentile(latencies, 0.5), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                percentile(latencies, 1));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(rank, 1) - 1] / 1e3;
+    }
+}
@@ -0,0 +1,361 @@
+package com.progressoft.samples;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Simulates customer sessions against candidate starting drawers, to find how many banknotes of each denomination to
+ * load (Monte Carlo).
+ * <p>
+ * A trial runs a number of sessions against its own copy of the drawer, each session picking a price at random, then
+ * inserting banknotes picked at random until the price is covered; the drawer takes the inserted banknotes and gives
+ * the change as by {@link Money#plus(Money)} and {@link Money#minus(Money)}, and the sale fails (the customer taking
+ * the banknotes back) if there is insufficient change.
+ * <p>
+ * Trials run in parallel on the common fork-join pool, each from its own generator split off a single seed along the
+ * fixed split of the trials into tasks, hence, a report only depends on the seed, and there is no shared mutable state.
+ * Every candidate is simulated against the same customers for a given seed, which makes their reports comparable.
+ */
+public final class VendingSimulator {
+    /**
+     * The number of points of the curves of a report, evenly spread over the sessions of a trial.
+     */
+    public static final int CURVE_POINTS = 20;
+
+    // The number of sessions below which trials run sequentially
+    private static final int THRESHOLD = 1 << 16;
+
+    private final DenominationSet denominationSet;
+
+    // Prices in minor units
+    private final long[] prices;
+
+    // The denomination index of the banknotes customers insert, picked uniformly
+    private final int[] banknotes;
+
+    private final int sessions;
+
+    /**
+     * Constructs a new VendingSimulator.
+     *
+     * @param prices    The prices of the items for sale, picked uniformly, treated as decimal values
+     * @param banknotes The banknotes customers insert, picked uniformly (a banknote listed twice being picked twice as
+     *                  often), treated as decimal values
+     * @param sessions  The number of sessions of a trial (e.g. the sales between two refills)
+     * @throws IllegalArgumentException If there are no prices, no banknotes or no sessions, if a banknote is not a
+     *                                  single banknote value, or if they belong to different denomination sets
+     */
+    public VendingSimulator(List<Money> prices, List<Money> banknotes, int sessions) {
+        if (prices.isEmpty() || banknotes.isEmpty()) {
+            throw new IllegalArgumentException("Arguments prices and banknotes must not be empty");
+        }
+
+        if (sessions <= 0) {
+            throw new IllegalArgumentException("Argument sessions must be positive");
+        }
+
+        this.denominationSet = prices.get(0).denominationSet();
+        this.prices = new long[prices.size()];
+        this.banknotes = new int[banknotes.size()];
+        this.sessions = sessions;
+
+        for (int i = 0; i < this.prices.length; i++) {
+            denominationSet.check(prices.get(i));
+            this.prices[i] = prices.get(i).amountInPiasters();
+        }
+
+        for (int i = 0; i < this.banknotes.length; i++) {
+            denominationSet.check(banknotes.get(i));
+            this.banknotes[i] = denominationSet.indexOf(banknotes.get(i).amountInPiasters());
+
+            if (this.banknotes[i] < 0) {
+                throw new IllegalArgumentException("Argument banknotes must hold single banknote values");
+            }
+        }
+    }
+
+    /**
+     * Simulates the sessions against a starting drawer.
+     *
+     * @param drawer The banknotes the drawer starts each trial with
+     * @param trials The number of independent trials
+     * @param seed   The seed of the generators of the trials
+     * @return The {@link Report} of the drawer
+     * @throws IllegalArgumentException If there are no trials, or if the drawer belongs to another denomination set
+     */
+    public Report simulate(Money drawer, int trials, long seed) {
+        if (trials <= 0) {
+            throw new IllegalArgumentException("Argument trials must be positive");
+        }
+
+        denominationSet.check(drawer);
+
+        // Keep tasks large enough that splitting does not outweigh the sessions
+        int leafTrials = Math.max(1, THRESHOLD / sessions);
+        TrialsTask task = new TrialsTask(drawer, 0, trials, leafTrials, new SplittableRandom(seed));
+        Tally tally = trials <= leafTrials ? task.compute() : ForkJoinPool.commonPool().invoke(task);
+
+        return new Report(drawer, trials, sessions, tally);
+    }
+
+    /**
+     * Simulates the sessions against each of a set of candidate starting drawers, with the same customers.
+     *
+     * @param drawers The candidate starting drawers
+     * @param trials  The number of independent trials per candidate
+     * @param seed    The seed of the generators of the trials
+     * @return The {@link Report} of each candidate, in order
+     * @throws IllegalArgumentException If there are no trials, or if a drawer belongs to another denomination set
+     */
+    public List<Report> simulate(List<Money> drawers, int trials, long seed) {
+        List<Report> reports = new ArrayList<>(drawers.size());
+
+        for (Money drawer : drawers) {
+            reports.add(simulate(drawer, trials, seed));
+        }
+
+        return reports;
+    }
+
+    /**
+     * Runs a single trial, recording its outcome.
+     */
+    private void runTrial(Money drawer, SplittableRandom random, Tally tally) {
+        ChangeMaker changeMaker = denominationSet.changeMaker();
+        int[] available = tally.available;
+        int[] change = tally.change;
+        int[] inserted = tally.inserted;
+
+        for (int i = 0; i < available.length; i++) {
+            available[i] = drawer.count(i);
+        }
+
+        for (int point = 0, session = 0; point < CURVE_POINTS; point++) {
+            for (int end = (int) ((long) sessions * (point + 1) / CURVE_POINTS); session < end; session++) {
+                long price = prices[random.nextInt(prices.length)];
+                long paid = 0;
+
+                while (paid < price) {
+                    int index = banknotes[random.nextInt(banknotes.length)];
+
+                    available[index]++;
+                    inserted[index]++;
+                    paid += denominationSet.denomination(index);
+                }
+
+                if (changeMaker.makeChange(available, paid - price, change)) {
+                    for (int i = 0; i < available.length; i++) {
+                        available[i] -= change[i];
+                        inserted[i] = 0;
+                    }
+                } else {
+                    for (int i = 0; i < available.length; i++) {
+                        available[i] -= inserted[i];
+                        inserted[i] = 0;
+                    }
+
+                    tally.failures[point]++;
+                }
+            }
+
+            for (int i = 0; i < available.length; i++) {
+                if (available[i] == 0) {
+                    tally.depletions[point][i]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * The outcome of the trials of a starting drawer.
+     */
+    public static final class Report {
+        private final Money drawer;
+
+        private final int trials;
+
+        private final int sessions;
+
+        private final long[] failures;
+
+        private final long[][] depletions;
+
+        private Report(Money drawer, int trials, int sessions, Tally tally) {
+            this.drawer = drawer;
+            this.trials = trials;
+            this.sessions = sessions;
+            this.failures = tally.failures;
+            this.depletions = tally.depletions;
+        }
+
+        /**
+         * Fetches the starting drawer of this report.
+         *
+         * @return The banknotes the drawer started each trial with
+         */
+        public Money drawer() {
+            return drawer;
+        }
+
+        /**
+         * Fetches the number of sessions simulated.
+         *
+         * @return The number of sessions across every trial
+         */
+        public long sessions() {
+            return (long) trials * sessions;
+        }
+
+        /**
+         * Fetches the number of failed sales.
+         *
+         * @return The number of sessions across every trial that failed due to insufficient change
+         */
+        public long failures() {
+            long total = 0;
+
+            for (long count : failures) {
+                total += count;
+            }
+
+            return total;
+        }
+
+        /**
+         * Calculates the rate of failed sales.
+         *
+         * @return The fraction of sessions that failed due to insufficient change
+         */
+        public double failureRate() {
+            return (double) failures() / sessions();
+        }
+
+        /**
+         * Calculates the rate of failed sales over the course of a trial.
+         *
+         * @return The fraction of sessions that failed due to insufficient change, for each of the
+         * {@link VendingSimulator#CURVE_POINTS} consecutive stretches of sessions of a trial
+         */
+        public double[] failureRateCurve() {
+            double[] curve = new double[CURVE_POINTS];
+
+            for (int point = 0; point < CURVE_POINTS; point++) {
+                long stretch = (long) sessions * (point + 1) / CURVE_POINTS - (long) sessions * point / CURVE_POINTS;
+
+                curve[point] = stretch == 0 ? 0 : (double) failures[point] / (stretch * trials);
+            }
+
+            return curve;
+        }
+
+        /**
+         * Calculates how often a banknote runs out over the course of a trial.
+         *
+         * @param banknote The banknote, treated as a decimal value
+         * @return The fraction of trials in which the drawer is out of the banknote, at the end of each of the
+         * {@link VendingSimulator#CURVE_POINTS} consecutive stretches of sessions of a trial
+         * @throws IllegalArgumentException If the banknote is not a single banknote value of the drawer's set
+         */
+        public double[] depletionCurve(Money banknote) {
+            drawer.denominationSet().check(banknote);
+            int index = drawer.denominationSet().indexOf(banknote.amountInPiasters());
+
+            if (index < 0) {
+                throw new IllegalArgumentException("Argument banknote must be a single banknote value");
+            }
+
+            double[] curve = new double[CURVE_POINTS];
+
+            for (int point = 0; point < CURVE_POINTS; point++) {
+                curve[point] = (double) depletions[point][index] / trials;
+            }
+
+            return curve;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %.4f%% of %d sales failed", drawer, 100 * failureRate(), sessions());
+        }
+    }
+
+    /**
+     * Counts the outcome of some trials, along with the buffers of the trials it counts (run one at a time).
+     */
+    private static final class Tally {
+        private final long[] failures = new long[CURVE_POINTS];
+
+        private final long[][] depletions;
+
+        private final int[] available;
+
+        private final int[] change;
+
+        private final int[] inserted;
+
+        private Tally(int denominations) {
+            depletions = new long[CURVE_POINTS][denominations];
+            available = new int[denominations];
+            change = new int[denominations];
+            inserted = new int[denominations];
+        }
+
+        private Tally merge(Tally other) {
+            for (int point = 0; point < CURVE_POINTS; point++) {
+                failures[point] += other.failures[point];
+
+                for (int i = 0; i < available.length; i++) {
+                    depletions[point][i] += other.depletions[point][i];
+                }
+            }
+
+            return this;
+        }
+    }
+
+    private final class TrialsTask extends RecursiveTask<Tally> {
+        private static final long serialVersionUID = 1L;
+
+        private final Money drawer;
+
+        private final int from;
+
+        private final int to;
+
+        private final int leafTrials;
+
+        private final SplittableRandom random;
+
+        private TrialsTask(Money drawer, int from, int to, int leafTrials, SplittableRandom random) {
+            this.drawer = drawer;
+            this.from = from;
+            this.to = to;
+            this.leafTrials = leafTrials;
+            this.random = random;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (to - from <= leafTrials) {
+                Tally tally = new Tally(denominationSet.size());
+
+                for (int trial = from; trial < to; trial++) {
+                    runTrial(drawer, random.split(), tally);
+                }
+
+                return tally;
+            }
+
+            // The generators are split along the ranges of trials, regardless of which thread runs them
+            int middle = (from + to) >>> 1;
+            TrialsTask left = new TrialsTask(drawer, from, middle, leafTrials, random.split());
+            left.fork();
+
+            Tally right = new TrialsTask(drawer, middle, to, leafTrials, random).compute();
+            return left.join().merge(right);
+        }
+    }
+}
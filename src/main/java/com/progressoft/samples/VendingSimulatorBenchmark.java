@@ -0,0 +1,79 @@
+package com.progressoft.samples;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.progressoft.samples.Money.*;
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2)
+@Warmup(iterations = 3, time = 2)
+@Fork(1)
+public class VendingSimulatorBenchmark {
+    private static final int TRIALS = 256;
+
+    private static final int SESSIONS = 1_000;
+
+    private static final List<Money> PRICES = Arrays.asList(TwentyFivePiasters.plus(TenPiasters), FiftyPiasters,
+            FiftyPiasters.plus(TwentyFivePiasters), OneDinar.plus(TwentyFivePiasters), OneDinar.times(2));
+
+    private static final List<Money> BANKNOTES = Arrays.asList(TwentyFivePiasters, FiftyPiasters, OneDinar, OneDinar,
+            FiveDinars);
+
+    private static final Money DRAWER = sum(FivePiasters.times(50), TenPiasters.times(50),
+            TwentyFivePiasters.times(50), FiftyPiasters.times(20), OneDinar.times(20));
+
+    private final VendingSimulator simulator = new VendingSimulator(PRICES, BANKNOTES, SESSIONS);
+
+    private long seed;
+
+    /**
+     * Benchmarks the number of sessions simulated per second by the parallel simulator.
+     */
+    @Benchmark
+    @OperationsPerInvocation(TRIALS * SESSIONS)
+    public long benchmarkSimulator() {
+        return simulator.simulate(DRAWER, TRIALS, seed++).failures();
+    }
+
+    /**
+     * Benchmarks the number of sessions simulated per second by a sequential loop over immutable {@link Money} objects.
+     */
+    @Benchmark
+    @OperationsPerInvocation(TRIALS * SESSIONS)
+    public long benchmarkMoneyLoop() {
+        SplittableRandom random = new SplittableRandom(seed++);
+        long failures = 0;
+
+        for (int trial = 0; trial < TRIALS; trial++) {
+            Money drawer = DRAWER;
+
+            for (int session = 0; session < SESSIONS; session++) {
+                Money price = PRICES.get(random.nextInt(PRICES.size()));
+                Money paid = Zero;
+
+                while (paid.amountInPiasters() < price.amountInPiasters()) {
+                    paid = paid.plus(BANKNOTES.get(random.nextInt(BANKNOTES.size())));
+                }
+
+                Money change = OnePiaster.times((int) (paid.amountInPiasters() - price.amountInPiasters()));
+                Money next = drawer.plus(paid).tryMinus(change);
+
+                if (next == null) {
+                    failures++;
+                } else {
+                    drawer = next;
+                }
+            }
+        }
+
+        return failures;
+    }
+}
@@ -0,0 +1,157 @@
+package com.progressoft.samples;
+
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.progressoft.samples.Money.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+public class CashDrawerTest {
+    @Test
+    public void addTest() {
+        assertEquals(Zero, new CashDrawer().toMoney());
+        assertEquals(OneDinar, new CashDrawer(FiftyPiasters).add(FiftyPiasters).toMoney());
+        assertEquals(TenDinars, new CashDrawer().addAll(FiveDinars, OneDinar.times(5)).toMoney());
+        assertEquals(Zero, new CashDrawer().addAll().toMoney());
+    }
+
+    @Test
+    public void removeTest() {
+        assertEquals(OneDinar, new CashDrawer(OneDinar.times(2)).remove(OneDinar).toMoney());
+        assertEquals(Zero, new CashDrawer(FiveDinars).remove(FiveDinars).toMoney());
+
+        // Removal requires the exact banknotes, unlike dispensing change
+        CashDrawer drawer = new CashDrawer(OneDinar.times(5));
+        assertThrows(IllegalArgumentException.class, () -> drawer.remove(FiveDinars));
+        assertEquals(FiveDinars, drawer.toMoney());
+    }
+
+    @Test
+    public void dispenseChangeTest() {
+        assertEquals(FiveDinars, new CashDrawer(OneDinar.times(10)).dispenseChange(FiveDinars).toMoney());
+        assertEquals(TwentyFivePiasters,
+                new CashDrawer(TwentyFivePiasters.plus(TenPiasters.times(3)))
+                        .dispenseChange(TenPiasters.times(3))
+                        .toMoney()
+        );
+
+        CashDrawer drawer = new CashDrawer(TenDinars);
+        assertThrows(IllegalArgumentException.class, () -> drawer.dispenseChange(OneDinar));
+        assertEquals(TenDinars, drawer.toMoney());
+    }
+
+    @Test
+    public void processSalesTest() {
+        CashDrawer drawer = new CashDrawer(TwentyFivePiasters);
+        List<SaleOutcome> outcomes = drawer.processSales(Arrays.asList(
+                new Sale(FiftyPiasters.plus(TwentyFivePiasters), OneDinar),
+                new Sale(FiftyPiasters.plus(TwentyFivePiasters), OneDinar),
+                new Sale(OneDinar, FiftyPiasters),
+                new Sale(FiftyPiasters, FiftyPiasters)
+        ));
+
+        assertEquals(SaleOutcome.Status.COMPLETED, outcomes.get(0).status());
+        assertEquals(TwentyFivePiasters, outcomes.get(0).returned());
+
+        // The only quarter was given as the change of the first sale
+        assertEquals(SaleOutcome.Status.INSUFFICIENT_CHANGE, outcomes.get(1).status());
+        assertSame(OneDinar, outcomes.get(1).returned());
+
+        assertEquals(SaleOutcome.Status.INSUFFICIENT_CREDIT, outcomes.get(2).status());
+        assertSame(FiftyPiasters, outcomes.get(2).returned());
+
+        assertEquals(SaleOutcome.Status.COMPLETED, outcomes.get(3).status());
+        assertEquals(Zero, outcomes.get(3).returned());
+
+        assertEquals(OneDinar.plus(FiftyPiasters), drawer.toMoney());
+        assertEquals(0, new CashDrawer().processSales(new ArrayList<>()).size());
+    }
+
+    @Test
+    public void processSalesMatchesSequentialSalesTest() {
+        Money[] prices = {TwentyFivePiasters.plus(TenPiasters), FiftyPiasters.plus(TwentyFivePiasters),
+                OneDinar.plus(TwentyFivePiasters), OneDinar.times(2).plus(FiftyPiasters)};
+        Money[] banknotes = {FivePiasters, TenPiasters, TwentyFivePiasters, FiftyPiasters, OneDinar, FiveDinars};
+        Random random = new Random(42);
+
+        List<Sale> sales = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            sales.add(new Sale(prices[random.nextInt(prices.length)], sum(
+                    banknotes[random.nextInt(banknotes.length)], banknotes[random.nextInt(banknotes.length)])));
+        }
+
+        Money initial = sum(FivePiasters.times(5), TenPiasters.times(5), TwentyFivePiasters.times(5));
+        CashDrawer drawer = new CashDrawer(initial);
+        List<SaleOutcome> outcomes = drawer.processSales(sales);
+
+        // Each sale sees the drawer left by the previous ones, as when processed one at a time
+        Money expected = initial;
+        for (int i = 0; i < sales.size(); i++) {
+            Sale sale = sales.get(i);
+            SaleOutcome outcome = outcomes.get(i);
+            assertSame(sale, outcome.sale());
+
+            long amount = sale.inserted().amountInPiasters() - sale.price().amountInPiasters();
+            if (amount < 0) {
+                assertEquals(SaleOutcome.Status.INSUFFICIENT_CREDIT, outcome.status());
+                continue;
+            }
+
+            Money paid = expected.plus(sale.inserted());
+            Money remaining = paid.tryMinus(OnePiaster.times((int) amount));
+
+            if (remaining == null) {
+                assertEquals(SaleOutcome.Status.INSUFFICIENT_CHANGE, outcome.status());
+                assertSame(sale.inserted(), outcome.returned());
+            } else {
+                assertEquals(SaleOutcome.Status.COMPLETED, outcome.status());
+                for (int j = 0; j < paid.denominationSet().size(); j++) {
+                    assertEquals(paid.count(j) - remaining.count(j), outcome.returned().count(j));
+                }
+                expected = remaining;
+            }
+        }
+
+        assertBanknotesEqual(expected, drawer.toMoney());
+    }
+
+    @Test
+    public void processSalesRejectsBatchTest() {
+        DenominationSet usd = DenominationSet.of("USD", 2, 1, 5, 10, 25, 100, 500, 1_000, 2_000, 5_000, 10_000);
+        CashDrawer drawer = new CashDrawer(TwentyFivePiasters);
+
+        // No sale of the batch is processed if one of them belongs to another denomination set
+        assertThrows(IllegalArgumentException.class, () -> drawer.processSales(Arrays.asList(
+                new Sale(FiftyPiasters.plus(TwentyFivePiasters), OneDinar),
+                new Sale(usd.banknote(25), usd.banknote(100))
+        )));
+        assertBanknotesEqual(TwentyFivePiasters, drawer.toMoney());
+
+        assertThrows(IllegalArgumentException.class, () -> new Sale(OneDinar, usd.banknote(100)));
+    }
+
+    private static void assertBanknotesEqual(Money expected, Money actual) {
+        for (int i = 0; i < expected.denominationSet().size(); i++) {
+            assertEquals(expected.count(i), actual.count(i));
+        }
+    }
+
+    @Test
+    public void snapshotTest() {
+        CashDrawer drawer = new CashDrawer(OneDinar);
+        Money snapshot = drawer.toMoney();
+        drawer.add(OneDinar);
+
+        // Snapshots are not affected by later changes to the drawer
+        assertEquals(OneDinar, snapshot);
+        assertEquals(2, drawer.amount(), 2);
+        assertEquals("2.00", drawer.toString());
+    }
+}
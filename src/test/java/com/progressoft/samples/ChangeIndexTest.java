@@ -0,0 +1,61 @@
+package com.progressoft.samples;
+
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.progressoft.samples.Money.*;
+import static org.junit.Assert.*;
+
+public class ChangeIndexTest {
+    @Test
+    public void canMakeChangeTest() {
+        CashDrawer drawer = new CashDrawer(TwentyFivePiasters.plus(TenPiasters.times(2)));
+        ChangeIndex index = drawer.indexChange(OneDinar);
+
+        assertTrue(index.canMakeChange(Zero));
+        assertTrue(index.canMakeChange(TwentyFivePiasters));
+        assertTrue(index.canMakeChange(TenPiasters.times(2).plus(TwentyFivePiasters)));
+        assertFalse(index.canMakeChange(TenPiasters.times(3)));
+        assertFalse(index.canMakeChange(FivePiasters));
+        assertThrows(IllegalArgumentException.class, () -> index.canMakeChange(FiveDinars));
+
+        // The index follows every operation on the drawer
+        drawer.add(TenPiasters);
+        assertTrue(index.canMakeChange(TenPiasters.times(3)));
+
+        drawer.dispenseChange(TenPiasters.times(3));
+        assertFalse(index.canMakeChange(TenPiasters));
+        assertTrue(drawer.canMakeChange(TwentyFivePiasters));
+        assertFalse(drawer.canMakeChange(FiveDinars));
+    }
+
+    /**
+     * Tests the index against the change computed from scratch, after a random sequence of operations.
+     */
+    @Test
+    public void randomOperationsTest() {
+        Money[] banknotes = {OnePiaster, FivePiasters, TenPiasters, TwentyFivePiasters, FiftyPiasters, OneDinar};
+        Random random = new Random(42);
+
+        CashDrawer drawer = new CashDrawer();
+        ChangeIndex index = drawer.indexChange(OneDinar.times(2));
+
+        for (int step = 0; step < 200; step++) {
+            Money banknote = banknotes[random.nextInt(banknotes.length)].times(1 + random.nextInt(3));
+
+            if (random.nextBoolean()) {
+                drawer.add(banknote);
+            } else if (drawer.canMakeChange(banknote)) {
+                drawer.dispenseChange(banknote);
+            }
+
+            Money snapshot = drawer.toMoney();
+            for (int piasters = 0; piasters <= 200; piasters++) {
+                Money amount = OnePiaster.times(piasters);
+                assertEquals(snapshot.shortfall(amount) == 0, index.canMakeChange(amount));
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.progressoft.samples;
+
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.progressoft.samples.Money.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class ConcurrentCashDrawerTest {
+    @Test
+    public void dispenseChangeTest() {
+        ConcurrentCashDrawer drawer = new ConcurrentCashDrawer(TwentyFivePiasters.plus(TenPiasters.times(3)));
+        assertEquals(TenPiasters.times(3), drawer.dispenseChange(TenPiasters.times(3)));
+        assertEquals(TwentyFivePiasters, drawer.toMoney());
+
+        assertThrows(IllegalArgumentException.class, () -> drawer.dispenseChange(TenPiasters));
+        assertEquals(TwentyFivePiasters, drawer.toMoney());
+        assertEquals("0.25", drawer.toString());
+    }
+
+    @Test
+    public void reservationTest() {
+        ConcurrentCashDrawer drawer = new ConcurrentCashDrawer(OneDinar.times(3));
+
+        ConcurrentCashDrawer.Reservation reservation = drawer.reserveChange(OneDinar.times(2));
+        assertEquals(OneDinar, drawer.toMoney());
+        assertThrows(IllegalArgumentException.class, () -> drawer.reserveChange(OneDinar.times(2)));
+
+        reservation.rollback();
+        assertEquals(OneDinar.times(3), drawer.toMoney());
+        assertThrows(IllegalStateException.class, reservation::commit);
+
+        drawer.reserveChange(OneDinar.times(3)).commit();
+        assertEquals(Zero, drawer.toMoney());
+    }
+
+    /**
+     * Tests that concurrent sales never dispense more banknotes than the drawer holds.
+     */
+    @Test
+    public void concurrentDispenseChangeTest() throws Exception {
+        int threads = 8;
+        ConcurrentCashDrawer drawer = new ConcurrentCashDrawer(
+                OnePiaster.times(1_000).plus(FivePiasters.times(1_000)).plus(TenPiasters.times(1_000))
+        );
+        AtomicInteger dispensed = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                while (true) {
+                    try {
+                        drawer.dispenseChange(TenPiasters.plus(FivePiasters).plus(OnePiaster));
+                        dispensed.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        return null;
+                    }
+                }
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // 16 piasters are dispensed per sale out of 16 dinars, leaving nothing behind
+        assertEquals(1_000, dispensed.get());
+        assertEquals(Zero, drawer.toMoney());
+    }
+}
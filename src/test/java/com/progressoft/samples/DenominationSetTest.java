@@ -0,0 +1,125 @@
+package com.progressoft.samples;
+
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.progressoft.samples.Money.*;
+import static org.junit.Assert.*;
+
+public class DenominationSetTest {
+    private static final DenominationSet USD =
+            DenominationSet.of("USD", 2, 1, 5, 10, 25, 100, 500, 1_000, 2_000, 5_000, 10_000);
+
+    private static final DenominationSet KWD =
+            DenominationSet.of("KWD", 3, 5, 10, 20, 50, 100, 250, 500, 1_000, 5_000, 10_000, 20_000);
+
+    @Test
+    public void predefinedSetTest() {
+        assertSame(DenominationSet.JOD, OneDinar.denominationSet());
+        assertSame(DenominationSet.JOD, Zero.denominationSet());
+        assertSame(Zero, DenominationSet.JOD.zero());
+        assertEquals(TwentyFivePiasters, DenominationSet.JOD.banknote(25));
+        assertEquals(10, DenominationSet.JOD.size());
+        assertEquals(5_000, DenominationSet.JOD.denomination(9));
+        assertEquals(5, DenominationSet.JOD.indexOf(100));
+        assertTrue(DenominationSet.JOD.indexOf(3) < 0);
+    }
+
+    @Test
+    public void definitionTest() {
+        assertSame(USD, DenominationSet.of("USD", 2, 1, 5, 10, 25, 100, 500, 1_000, 2_000, 5_000, 10_000));
+        assertEquals("USD", USD.currency());
+        assertEquals(3, KWD.fractionDigits());
+
+        assertThrows(IllegalArgumentException.class, () -> DenominationSet.of("USD", 2, 1, 5, 10));
+        assertThrows(IllegalArgumentException.class, () -> DenominationSet.of("", 2, 1));
+        assertThrows(IllegalArgumentException.class, () -> DenominationSet.of("XXA", -1, 1));
+        assertThrows(IllegalArgumentException.class, () -> DenominationSet.of("XXB", 2));
+        assertThrows(IllegalArgumentException.class, () -> DenominationSet.of("XXC", 2, 0, 5));
+        assertThrows(IllegalArgumentException.class, () -> DenominationSet.of("XXD", 2, 5, 1));
+        assertThrows(IllegalArgumentException.class, () -> USD.banknote(3));
+    }
+
+    @Test
+    public void arithmeticTest() {
+        Money quarters = USD.banknote(25).times(3);
+        Money drawer = quarters.plus(USD.banknote(100));
+
+        assertEquals(1.75, drawer.amount(), 0.001);
+        assertEquals(175, drawer.amountInPiasters());
+        assertEquals("1.75", drawer.toString());
+        assertEquals(USD.banknote(25).times(3), drawer.minus(USD.banknote(100)));
+        assertEquals(USD.banknote(25), sum(USD.banknote(10), USD.banknote(10), USD.banknote(5)).minus(USD.zero()));
+        assertNull(drawer.tryMinus(USD.banknote(10)));
+        assertEquals(0.10, drawer.shortfall(USD.banknote(10)), 0.001);
+        assertEquals(USD.banknote(1), sum(Collections.singletonList(USD.banknote(1))));
+        assertSame(USD.zero(), USD.banknote(5).times(0));
+
+        Money dinar = KWD.banknote(1_000);
+        assertEquals("1.000", dinar.toString());
+        assertEquals(KWD.banknote(250).times(4), KWD.banknote(250).times(8).minus(dinar));
+        assertEquals(KWD.zero(), dinar.minus(KWD.banknote(250).times(4)));
+
+        // Shortfalls are reported in major units of the set, whatever its number of fraction digits
+        InsufficientChangeException exception =
+                assertThrows(InsufficientChangeException.class, () -> dinar.minus(KWD.banknote(500)));
+        assertEquals(0.5, exception.shortfall(), 0.0001);
+        assertEquals(dinar.shortfall(KWD.banknote(500)), exception.shortfall(), 0.0001);
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void mixedSetsTest() {
+        Money dollar = USD.banknote(100);
+
+        assertNotEquals(OneDinar, dollar);
+        assertThrows(IllegalArgumentException.class, () -> OneDinar.plus(dollar));
+        assertThrows(IllegalArgumentException.class, () -> OneDinar.minus(dollar));
+        assertThrows(IllegalArgumentException.class, () -> OneDinar.tryMinus(dollar));
+        assertThrows(IllegalArgumentException.class, () -> OneDinar.minusComplex(dollar));
+        assertThrows(IllegalArgumentException.class, () -> OneDinar.compareTo(dollar));
+        assertThrows(IllegalArgumentException.class, () -> sum(OneDinar, dollar));
+        assertThrows(IllegalArgumentException.class, () -> sum(Arrays.asList(OneDinar, dollar)));
+        assertThrows(IllegalArgumentException.class, () -> new CashDrawer().add(dollar));
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentCashDrawer(dollar).add(OneDinar));
+        assertThrows(IllegalArgumentException.class, () -> new DrawerStore(1).plus(0, dollar));
+    }
+
+    @Test
+    public void drawersTest() {
+        CashDrawer drawer = new CashDrawer(USD.banknote(25).times(4));
+        drawer.add(USD.banknote(500)).dispenseChange(USD.banknote(100).times(5).plus(USD.banknote(25).times(2)));
+
+        assertSame(USD, drawer.denominationSet());
+        assertEquals(USD.banknote(25).times(2), drawer.toMoney());
+        assertTrue(drawer.indexChange(USD.banknote(100)).canMakeChange(USD.banknote(25).times(2)));
+
+        ConcurrentCashDrawer concurrentDrawer = new ConcurrentCashDrawer(KWD.banknote(250).times(2));
+        assertEquals(KWD.banknote(250).times(2), concurrentDrawer.dispenseChange(KWD.banknote(500)));
+        assertEquals(KWD.zero(), concurrentDrawer.toMoney());
+
+        DrawerStore store = new DrawerStore(USD, 2);
+        store.plus(1, USD.banknote(10_000).plus(USD.banknote(5_000)));
+        store.minus(1, USD.banknote(10_000));
+        assertEquals(USD.banknote(5_000), store.toMoney(1));
+        assertEquals(5_000, store.totalInPiasters());
+        assertFalse(store.tryMinus(1, USD.banknote(2_000)));
+    }
+
+    @Test
+    public void codecTest() {
+        Money value = KWD.banknote(250).times(3).plus(KWD.banknote(20_000));
+        ByteBuffer buffer = ByteBuffer.allocate(MoneyCodec.maxEncodedSize(KWD));
+
+        MoneyCodec.encode(value, buffer);
+        buffer.flip();
+
+        Money decoded = MoneyCodec.decode(KWD, buffer);
+        assertEquals(value, decoded);
+        assertSame(KWD, decoded.denominationSet());
+    }
+}
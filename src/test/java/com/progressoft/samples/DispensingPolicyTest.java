@@ -0,0 +1,159 @@
+package com.progressoft.samples;
+
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.progressoft.samples.Money.*;
+import static org.junit.Assert.*;
+
+public class DispensingPolicyTest {
+    private static final Money[] PRICES = {TwentyFivePiasters.plus(TenPiasters), FiftyPiasters,
+            FiftyPiasters.plus(TwentyFivePiasters), OneDinar.plus(TwentyFivePiasters)};
+
+    // A currency where the fewest banknotes are not found greedily (e.g. 6 = 3 + 3 rather than 4 + 1 + 1)
+    private static final DenominationSet XTS = DenominationSet.of("XTS", 0, 1, 3, 4, 10, 25);
+
+    @Test
+    public void fewestNotesTest() {
+        Money drawer = sum(OnePiaster.times(10), FivePiasters.times(10), TenPiasters.times(10),
+                TwentyFivePiasters.times(10), FiftyPiasters.times(10));
+        Money remaining = drawer.minus(sum(FiftyPiasters, TenPiasters, FivePiasters),
+                DispensingTable.of(DispensingPolicy.fewestNotes(), PRICES));
+
+        assertCounts(drawer, remaining, 0, 1, 1, 0, 1);
+
+        Money coins = sum(XTS.banknote(1).times(5), XTS.banknote(3).times(5), XTS.banknote(4).times(5));
+        DispensingTable table = DispensingTable.of(DispensingPolicy.fewestNotes(), XTS.banknote(10));
+
+        assertCounts(coins, coins.minus(XTS.banknote(3).times(2)), 2, 0, 1);
+        assertCounts(coins, coins.minus(XTS.banknote(3).times(2), table), 0, 2, 0);
+    }
+
+    @Test
+    public void preserveSmallTest() {
+        Money drawer = sum(FivePiasters.times(5), TenPiasters.times(4), TwentyFivePiasters.times(2));
+        Money change = TenPiasters.times(3);
+
+        assertCounts(drawer, drawer.minus(change), 0, 1, 0, 1);
+        assertCounts(drawer, drawer.minus(change, DispensingTable.of(DispensingPolicy.preserveSmall(), PRICES)),
+                0, 0, 3, 0);
+    }
+
+    @Test
+    public void drainOverflowTest() {
+        DispensingTable table = DispensingTable.of(
+                DispensingPolicy.drainOverflow(20, 20, 20, 20, 20, 20, 20, 20, 20, 20),
+                PRICES
+        );
+
+        Money drawer = sum(FivePiasters.times(16), TwentyFivePiasters.times(4));
+        assertCounts(drawer, drawer.minus(TenPiasters.times(3), table), 0, 6, 0, 0);
+
+        // Once the tube is no longer full, the fewest banknotes are dispensed again
+        drawer = sum(FivePiasters.times(14), TwentyFivePiasters.times(4));
+        assertCounts(drawer, drawer.minus(TenPiasters.times(3), table), 0, 1, 0, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> DispensingPolicy.drainOverflow(20, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> DispensingTable.of(DispensingPolicy.drainOverflow(20), PRICES));
+    }
+
+    @Test
+    public void leastWeightTest() {
+        DispensingPolicy[] policies = {DispensingPolicy.fewestNotes(), DispensingPolicy.preserveSmall(),
+                DispensingPolicy.drainOverflow(8, 8, 8, 8, 8), (set, index, available) -> 1 + (index * 7 + 3) % 5};
+        Random random = new Random(42);
+
+        for (DispensingPolicy policy : policies) {
+            DispensingTable table = DispensingTable.of(policy, XTS.banknote(4));
+            int[] available = new int[XTS.size()];
+            int[] change = new int[XTS.size()];
+
+            for (int trial = 0; trial < 500; trial++) {
+                for (int i = 0; i < available.length; i++) {
+                    available[i] = random.nextInt(7);
+                }
+
+                int amount = random.nextInt(25);
+                long best = leastWeight(policy, available, amount, 0);
+
+                assertEquals(best != Long.MAX_VALUE, table.makeChange(available, amount, change));
+
+                if (best != Long.MAX_VALUE) {
+                    long total = 0;
+                    long weight = 0;
+
+                    for (int i = 0; i < change.length; i++) {
+                        assertTrue(change[i] >= 0 && change[i] <= available[i]);
+                        total += change[i] * XTS.denomination(i);
+                        weight += change[i] * policy.weight(XTS, i, available[i]);
+                    }
+
+                    assertEquals(amount, total);
+                    assertEquals(best, weight);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void cashDrawerTest() {
+        CashDrawer drawer =
+                new CashDrawer(sum(FivePiasters.times(5), TenPiasters.times(4), TwentyFivePiasters.times(2)));
+        DispensingTable table = DispensingTable.of(DispensingPolicy.preserveSmall(), PRICES);
+
+        Money before = drawer.toMoney();
+        drawer.dispenseChange(TenPiasters.times(3), table);
+        assertCounts(before, drawer.toMoney(), 0, 0, 3, 0);
+
+        // The drawer lacks the fifty piasters of the precomputed change, which is then found among its banknotes
+        before = drawer.toMoney();
+        drawer.dispenseChange(sum(FiftyPiasters, TenPiasters, FivePiasters), table);
+        assertCounts(before, drawer.toMoney(), 0, 1, 1, 2);
+    }
+
+    @Test
+    public void insufficientChangeTest() {
+        DispensingTable table = DispensingTable.of(DispensingPolicy.fewestNotes(), PRICES);
+        InsufficientChangeException exception = assertThrows(
+                InsufficientChangeException.class,
+                () -> TwentyFivePiasters.times(2).minus(TenPiasters, table)
+        );
+
+        assertEquals(0.10, exception.shortfall(), 0.001);
+        assertThrows(InsufficientChangeException.class,
+                () -> new CashDrawer(OneDinar).dispenseChange(FiftyPiasters, table));
+        assertThrows(IllegalArgumentException.class, () -> XTS.banknote(25).minus(XTS.banknote(4), table));
+        assertThrows(IllegalArgumentException.class, () -> DispensingTable.of(DispensingPolicy.fewestNotes()));
+        assertThrows(IllegalArgumentException.class,
+                () -> OneDinar.minus(OnePiaster, DispensingTable.of((set, index, available) -> 0, PRICES)));
+    }
+
+    private static void assertCounts(Money before, Money after, int... dispensed) {
+        for (int i = 0; i < dispensed.length; i++) {
+            assertEquals("Banknote " + i, dispensed[i], before.count(i) - after.count(i));
+        }
+    }
+
+    /**
+     * Finds the least total weight of the change by trying every combination of the available banknotes.
+     */
+    private static long leastWeight(DispensingPolicy policy, int[] available, long amount, int index) {
+        if (index == available.length) {
+            return amount == 0 ? 0 : Long.MAX_VALUE;
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int count = 0; count <= available[index] && count * XTS.denomination(index) <= amount; count++) {
+            long rest = leastWeight(policy, available, amount - count * XTS.denomination(index), index + 1);
+
+            if (rest != Long.MAX_VALUE) {
+                best = Math.min(best, rest + count * policy.weight(XTS, index, available[index]));
+            }
+        }
+
+        return best;
+    }
+}
@@ -0,0 +1,135 @@
+package com.progressoft.samples;
+
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.progressoft.samples.Money.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class DrawerJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recoveryTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+
+        try (DrawerJournal journal = DrawerJournal.open(directory)) {
+            journal.refill(TwentyFivePiasters.plus(TenPiasters.times(3)));
+            journal.plus(OneDinar);
+            assertEquals(TenPiasters.times(3), journal.minus(TenPiasters.times(3)));
+            assertThrows(InsufficientChangeException.class, () -> journal.minus(FivePiasters));
+            assertEquals(3, journal.sequence());
+        }
+
+        try (DrawerJournal journal = DrawerJournal.open(directory)) {
+            assertEquals(OneDinar.plus(TwentyFivePiasters), journal.toMoney());
+            assertEquals(3, journal.sequence());
+
+            journal.minus(OneDinar);
+        }
+
+        try (DrawerJournal journal = DrawerJournal.open(directory)) {
+            assertEquals(TwentyFivePiasters, journal.toMoney());
+            assertEquals(4, journal.sequence());
+        }
+    }
+
+    @Test
+    public void snapshotTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+
+        // A snapshot is taken every 10 records, the remaining 5 records are replayed upon recovery
+        try (DrawerJournal journal = DrawerJournal.open(directory, 4, 10)) {
+            for (int i = 0; i < 25; i++) {
+                journal.plus(OnePiaster);
+            }
+        }
+
+        try (DrawerJournal journal = DrawerJournal.open(directory, 4, 10)) {
+            assertEquals(OnePiaster.times(25), journal.toMoney());
+            assertEquals(25, journal.sequence());
+        }
+    }
+
+    /**
+     * Tests that the records of concurrent operations, which share forces, are all recovered.
+     */
+    @Test
+    public void groupCommitTest() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try (DrawerJournal journal = DrawerJournal.open(directory, 4, 1_000)) {
+            journal.refill(FiftyPiasters.times(800));
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        journal.plus(OneDinar);
+                        journal.minus(FiftyPiasters);
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            assertEquals(1_601, journal.sequence());
+        } finally {
+            executor.shutdown();
+        }
+
+        try (DrawerJournal journal = DrawerJournal.open(directory)) {
+            assertEquals(800, journal.toMoney().amount(), 0.001);
+            assertEquals(1_601, journal.sequence());
+        }
+    }
+
+    /**
+     * Tests that recovery ends at a torn record, and that records left behind by an earlier epoch are not replayed.
+     */
+    @Test
+    public void tornRecordTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+
+        try (DrawerJournal journal = DrawerJournal.open(directory)) {
+            for (int i = 0; i < 5; i++) {
+                journal.plus(OneDinar);
+            }
+        }
+
+        // Corrupt the third record
+        try (FileChannel channel = FileChannel.open(directory.resolve("journal.bin"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), 3L * DrawerJournal.RECORD_SIZE + 20);
+        }
+
+        try (DrawerJournal journal = DrawerJournal.open(directory)) {
+            assertEquals(OneDinar.times(2), journal.toMoney());
+            journal.plus(FiveDinars);
+        }
+
+        // Records 4 and 5 of the first epoch follow the new record 3, but must not be replayed
+        try (DrawerJournal journal = DrawerJournal.open(directory)) {
+            assertEquals(OneDinar.times(7), journal.toMoney());
+            assertEquals(3, journal.sequence());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.progressoft.samples;
+
+
+import org.junit.Test;
+
+import static com.progressoft.samples.Money.*;
+import static org.junit.Assert.*;
+
+public class DrawerStoreTest {
+    @Test
+    public void plusTest() {
+        DrawerStore store = new DrawerStore(3);
+        store.plus(1, FiveDinars.plus(OneDinar));
+        store.plus(1, OneDinar);
+
+        assertEquals(Zero, store.toMoney(0));
+        assertEquals(FiveDinars.plus(OneDinar.times(2)), store.toMoney(1));
+        assertEquals(7, store.amount(1), 0.001);
+        assertEquals(700, store.amountInPiasters(1));
+        assertEquals(Zero, store.toMoney(2));
+    }
+
+    @Test
+    public void minusTest() {
+        DrawerStore store = new DrawerStore(2);
+        store.set(0, TwentyFivePiasters.plus(TenPiasters.times(3)));
+        store.set(1, TenDinars);
+
+        // Mirrors Money.minus for every drawer
+        store.minus(0, TenPiasters.times(3));
+        assertEquals(TwentyFivePiasters.plus(TenPiasters.times(3)).minus(TenPiasters.times(3)), store.toMoney(0));
+
+        assertThrows(InsufficientChangeException.class, () -> store.minus(1, OneDinar));
+        assertFalse(store.tryMinus(1, OneDinar));
+        assertEquals(TenDinars, store.toMoney(1));
+        assertTrue(store.tryMinus(1, TenDinars));
+        assertEquals(Zero, store.toMoney(1));
+    }
+
+    @Test
+    public void totalTest() {
+        DrawerStore store = new DrawerStore(1_000);
+        for (int i = 0; i < store.size(); i++) {
+            store.set(i, OneDinar.times(i % 10));
+        }
+
+        assertEquals(4_500 * 100, store.totalInPiasters());
+        assertEquals(40_000, store.offHeapBytes());
+    }
+}
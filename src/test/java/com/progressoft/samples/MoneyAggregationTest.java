@@ -0,0 +1,63 @@
+package com.progressoft.samples;
+
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.progressoft.samples.Money.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class MoneyAggregationTest {
+    // Large enough to be split across the fork-join pool
+    private static final List<Money> FLEET = IntStream.range(0, 100_000)
+            .mapToObj(i -> i % 2 == 0 ? OneDinar.plus(FivePiasters) : FiveDinars)
+            .collect(Collectors.toList());
+
+    @Test
+    public void sumTest() {
+        assertEquals(Zero, sum(Collections.<Money>emptyList()));
+        assertEquals(FiftyPiasters, sum(Arrays.asList(TwentyFivePiasters, TwentyFivePiasters)));
+        assertEquals(OneDinar.times(50_000 * 6).plus(FivePiasters.times(50_000)), sum(FLEET));
+    }
+
+    @Test
+    public void summingTest() {
+        assertEquals(sum(FLEET), FLEET.parallelStream().collect(MoneyAggregation.summing()));
+        assertEquals(sum(FLEET), FLEET.stream().collect(MoneyAggregation.summing()));
+    }
+
+    @Test
+    public void sumByTest() {
+        Map<Integer, Money> totals = MoneyAggregation.sumBy(
+                IntStream.range(0, FLEET.size()).boxed().collect(Collectors.toList()),
+                machine -> machine % 2,
+                FLEET::get
+        );
+
+        assertEquals(2, totals.size());
+        assertEquals(OneDinar.times(50_000).plus(FivePiasters.times(50_000)), totals.get(0));
+        assertEquals(FiveDinars.times(50_000), totals.get(1));
+    }
+
+    @Test
+    public void countByBanknoteTest() {
+        SortedMap<Money, Long> counts = MoneyAggregation.countByBanknote(FLEET);
+
+        assertEquals(DENOMINATIONS.length, counts.size());
+        assertEquals(OnePiaster, counts.firstKey());
+        assertEquals(Long.valueOf(50_000), counts.get(FivePiasters));
+        assertEquals(Long.valueOf(50_000), counts.get(OneDinar));
+        assertEquals(Long.valueOf(50_000), counts.get(FiveDinars));
+        assertEquals(Long.valueOf(0), counts.get(FiftyDinars));
+    }
+
+    @Test
+    public void overflowTest() {
+        Money large = OnePiaster.times(Integer.MAX_VALUE);
+        assertThrows(ArithmeticException.class, () -> sum(Arrays.asList(large, OnePiaster)));
+    }
+}
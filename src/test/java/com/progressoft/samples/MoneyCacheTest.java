@@ -0,0 +1,46 @@
+package com.progressoft.samples;
+
+
+import org.junit.Test;
+
+import static com.progressoft.samples.Money.*;
+import static org.junit.Assert.*;
+
+public class MoneyCacheTest {
+    @Test
+    public void singleDenominationTest() {
+        assertSame(OnePiaster.times(7), OnePiaster.times(7));
+        assertSame(FiftyPiasters.times(3), FiftyPiasters.plus(FiftyPiasters).plus(FiftyPiasters));
+        assertSame(Zero, OneDinar.times(0));
+
+        // Equal amounts made of different banknotes are distinct values
+        assertNotSame(OneDinar.times(2), FiftyPiasters.times(4));
+        assertEquals(OneDinar.times(2), FiftyPiasters.times(4));
+    }
+
+    @Test
+    public void multipleDenominationsTest() {
+        Money price = OneDinar.plus(TwentyFivePiasters);
+        assertSame(price, OneDinar.plus(TwentyFivePiasters));
+        assertSame(price, TwentyFivePiasters.plus(OneDinar));
+        assertTrue(MoneyCache.size() > 0);
+    }
+
+    @Test
+    public void largeValuesTest() {
+        // Values beyond the cached count (e.g. drawers) are never shared
+        assertNotSame(OnePiaster.times(500_000), OnePiaster.times(500_000));
+        assertEquals(OnePiaster.times(500_000), OnePiaster.times(500_000));
+    }
+
+    @Test
+    public void statsTest() {
+        MoneyCache.resetStats();
+        TenPiasters.times(9).plus(FiveDinars);
+        TenPiasters.times(9).plus(FiveDinars);
+
+        assertTrue(MoneyCache.hitCount() >= 2);
+        assertTrue(MoneyCache.hitRate() > 0);
+        assertTrue(MoneyCache.hitRate() <= 1);
+    }
+}
@@ -0,0 +1,100 @@
+package com.progressoft.samples;
+
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static com.progressoft.samples.Money.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class MoneyCodecTest {
+    private static void assertSameBanknotes(Money expected, Money actual) {
+        for (int i = 0; i < DENOMINATIONS.length; i++) {
+            assertEquals(expected.count(i), actual.count(i));
+        }
+    }
+
+    @Test
+    public void roundTripTest() {
+        Money[] items = {
+                Zero,
+                OnePiaster,
+                FiftyDinars,
+                OneDinar.times(100),
+                FivePiasters.times(20),
+                FiftyPiasters.plus(TwentyFivePiasters).plus(OnePiaster),
+                TenPiasters.times(Integer.MAX_VALUE),
+        };
+
+        for (Money item : items) {
+            ByteBuffer buffer = ByteBuffer.allocate(MoneyCodec.maxEncodedSize());
+            MoneyCodec.encode(item, buffer);
+            buffer.flip();
+
+            // Money with equal amounts but different banknotes must not be confused
+            assertSameBanknotes(item, MoneyCodec.decode(buffer));
+            assertEquals(0, buffer.remaining());
+        }
+    }
+
+    @Test
+    public void sizeTest() {
+        ByteBuffer buffer = ByteBuffer.allocate(MoneyCodec.maxEncodedSize());
+
+        MoneyCodec.encode(Zero, buffer);
+        assertEquals(1, buffer.position());
+
+        buffer.clear();
+        MoneyCodec.encode(FiftyDinars, buffer);
+        assertEquals(3, buffer.position());
+
+        buffer.clear();
+        MoneyCodec.encode(OnePiaster, buffer);
+        assertEquals(2, buffer.position());
+    }
+
+    @Test
+    public void batchTest() {
+        Money[] items = {OnePiaster, FiveDinars.times(3), Zero, TenDinars.plus(FivePiasters)};
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 + items.length * MoneyCodec.maxEncodedSize());
+        MoneyCodec.encodeAll(items, buffer);
+        buffer.flip();
+
+        Money[] decoded = MoneyCodec.decodeAll(buffer);
+        assertEquals(items.length, decoded.length);
+        for (int i = 0; i < items.length; i++) {
+            assertSameBanknotes(items[i], decoded[i]);
+        }
+    }
+
+    @Test
+    public void malformedTest() {
+        assertThrows(IllegalArgumentException.class, () -> MoneyCodec.decode(ByteBuffer.allocate(0)));
+        assertThrows(IllegalArgumentException.class, () -> MoneyCodec.decode(ByteBuffer.wrap(new byte[]{0x01})));
+        assertThrows(IllegalArgumentException.class,
+                () -> MoneyCodec.decode(ByteBuffer.wrap(new byte[]{(byte) 0x80, 0x10})));
+        assertThrows(IllegalArgumentException.class, () -> MoneyCodec.decodeAll(ByteBuffer.wrap(new byte[]{0x7F})));
+
+        // A count of 2^32 - 1 (negative), and a count exceeding 32 bits
+        assertThrows(IllegalArgumentException.class, () -> MoneyCodec.decode(
+                ByteBuffer.wrap(new byte[]{0x01, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F})));
+        assertThrows(IllegalArgumentException.class, () -> MoneyCodec.decode(
+                ByteBuffer.wrap(new byte[]{0x01, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x1F})));
+        assertThrows(IllegalArgumentException.class, () -> MoneyCodec.decode(
+                ByteBuffer.wrap(new byte[]{0x01, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x10})));
+    }
+
+    @Test
+    public void negativeCountTest() {
+        int[] banknotes = new int[DenominationSet.JOD.size()];
+        banknotes[1] = -1;
+        ByteBuffer buffer = ByteBuffer.allocate(MoneyCodec.maxEncodedSize());
+
+        // Negative counts are rejected on both ends, as they could not be decoded back
+        assertThrows(IllegalArgumentException.class, () -> MoneyCodec.encode(Money.wrap(banknotes), buffer));
+        assertEquals(0, buffer.position());
+    }
+}
@@ -0,0 +1,123 @@
+package com.progressoft.samples;
+
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.JMException;
+import javax.management.JMX;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static com.progressoft.samples.Money.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("deprecation")
+public class MoneyMetricsTest {
+    private final MoneyMetrics metrics = MoneyMetrics.metrics();
+
+    @Before
+    public void setUp() {
+        assertTrue("Tests are expected to run with the metrics enabled", metrics.isEnabled());
+        metrics.reset();
+    }
+
+    @Test
+    public void operationCountsTest() {
+        Money drawer = OneDinar.plus(TwentyFivePiasters.times(2));
+
+        drawer.minus(FiftyPiasters);
+        drawer.tryMinus(TenPiasters);
+        drawer.minusComplex(TwentyFivePiasters);
+
+        assertEquals(Long.valueOf(1), metrics.getOperationCounts().get("plus"));
+        assertEquals(Long.valueOf(2), metrics.getOperationCounts().get("minus"));
+        assertEquals(Long.valueOf(1), metrics.getOperationCounts().get("minusComplex"));
+        assertEquals(Long.valueOf(1), metrics.getFailureCounts().get("minus"));
+        assertEquals(Long.valueOf(0), metrics.getFailureCounts().get("minusComplex"));
+    }
+
+    @Test
+    public void failuresByShortfallTest() {
+        Money drawer = TwentyFivePiasters.plus(OneDinar);
+
+        assertThrows(InsufficientChangeException.class, () -> drawer.minus(TenPiasters));
+        assertThrows(InsufficientChangeException.class, () -> drawer.minus(TenPiasters));
+        assertThrows(InsufficientChangeException.class, () -> drawer.minus(FiftyPiasters));
+        assertThrows(InsufficientChangeException.class, () -> drawer.minusComplex(FiftyPiasters));
+
+        assertEquals(Long.valueOf(2), metrics.getFailuresByShortfall().get("0.10"));
+        assertEquals(Long.valueOf(2), metrics.getFailuresByShortfall().get("0.25"));
+        assertEquals(2, metrics.getFailuresByShortfall().size());
+    }
+
+    @Test
+    public void depletionTest() {
+        CashDrawer drawer = new CashDrawer(OneDinar.plus(TwentyFivePiasters.times(2)));
+
+        // Deductions of temporary values are not drawers
+        OneDinar.plus(TwentyFivePiasters).minus(TwentyFivePiasters);
+        assertEquals(Long.valueOf(0), metrics.getDepletions().get("0.25"));
+
+        drawer.dispenseChange(FiftyPiasters);
+
+        assertEquals(Long.valueOf(1), metrics.getDepletions().get("0.25"));
+        assertEquals(Long.valueOf(0), metrics.getDepletions().get("1.00"));
+        assertEquals(Integer.valueOf(0), metrics.getRemainingBanknotes().get("0.25"));
+
+        drawer.add(OneDinar).dispenseChange(OneDinar);
+        assertEquals(Integer.valueOf(1), metrics.getRemainingBanknotes().get("1.00"));
+
+        drawer.dispenseChange(OneDinar);
+
+        assertEquals(Long.valueOf(1), metrics.getDepletions().get("1.00"));
+        assertEquals(Integer.valueOf(0), metrics.getRemainingBanknotes().get("1.00"));
+    }
+
+    @Test
+    public void concurrentDepletionTest() {
+        ConcurrentCashDrawer drawer = new ConcurrentCashDrawer(FiveDinars.plus(OneDinar.times(2)));
+
+        drawer.reserveChange(OneDinar).rollback();
+        assertEquals(Long.valueOf(0), metrics.getDepletions().get("1.00"));
+
+        drawer.dispenseChange(OneDinar.times(2));
+
+        assertEquals(Long.valueOf(1), metrics.getDepletions().get("1.00"));
+        assertEquals(Integer.valueOf(0), metrics.getRemainingBanknotes().get("1.00"));
+    }
+
+    @Test
+    public void latencyTest() {
+        for (int i = 0; i < 1_000; i++) {
+            OnePiaster.plus(FivePiasters);
+        }
+
+        long p50 = metrics.getP50LatencyNanos().get("plus");
+        long p99 = metrics.getP99LatencyNanos().get("plus");
+        long p999 = metrics.getP999LatencyNanos().get("plus");
+
+        // Latencies are reported as the upper bound of power of two buckets
+        assertEquals(0, p50 & (p50 + 1));
+        assertTrue(p50 <= p99 && p99 <= p999);
+        assertTrue(metrics.getMeanLatencyNanos().get("plus") > 0);
+        assertEquals(Long.valueOf(0), metrics.getP99LatencyNanos().get("minus"));
+    }
+
+    @Test
+    public void mxBeanTest() throws JMException {
+        OnePiaster.plus(FivePiasters);
+
+        MoneyMetricsMXBean proxy = JMX.newMXBeanProxy(
+                ManagementFactory.getPlatformMBeanServer(),
+                new ObjectName(MoneyMetrics.OBJECT_NAME),
+                MoneyMetricsMXBean.class
+        );
+
+        assertTrue(proxy.isEnabled());
+        assertEquals(Long.valueOf(1), proxy.getOperationCounts().get("plus"));
+
+        proxy.reset();
+        assertEquals(Long.valueOf(0), metrics.getOperationCounts().get("plus"));
+    }
+}
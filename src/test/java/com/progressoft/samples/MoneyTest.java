@@ -3,9 +3,12 @@ package com.progressoft.samples;
 
 import org.junit.Test;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
 import static com.progressoft.samples.Money.*;
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.*;
 
 public class MoneyTest {
     @Test
@@ -44,6 +47,7 @@ public class MoneyTest {
         assertEquals(TwentyFivePiasters, sum(TenPiasters, TenPiasters, FivePiasters));
         assertEquals(FiftyPiasters, sum(TenPiasters, TenPiasters, TenPiasters, TenPiasters, TenPiasters));
         assertEquals(FiftyPiasters, sum(TwentyFivePiasters, TwentyFivePiasters));
+        assertThrows(ArithmeticException.class, () -> sum(OnePiaster.times(Integer.MAX_VALUE), OnePiaster));
     }
 
     @Test
@@ -56,6 +60,110 @@ public class MoneyTest {
         assertEquals(FiveDinars, OneDinar.times(10).minus(FiveDinars));
     }
 
+    @Test
+    public void tryMinusTest() {
+        assertNull(Zero.tryMinus(OneDinar));
+        assertNull(TenDinars.tryMinus(OneDinar));
+        assertEquals(Zero, Zero.tryMinus(Zero));
+        assertEquals(FiveDinars, OneDinar.times(10).tryMinus(FiveDinars));
+        assertEquals(TwentyFivePiasters, TwentyFivePiasters.plus(TenPiasters.times(3)).tryMinus(TenPiasters.times(3)));
+    }
+
+    @Test
+    public void shortfallTest() {
+        assertEquals(0, OneDinar.times(10).shortfall(FiveDinars), 0.001);
+        assertEquals(1, Zero.shortfall(OneDinar), 0.001);
+        assertEquals(1, TenDinars.shortfall(OneDinar), 0.001);
+        assertEquals(0.05, TwentyFivePiasters.plus(TenPiasters.times(2)).shortfall(TenPiasters.times(3)), 0.001);
+
+        InsufficientChangeException exception = assertThrows(InsufficientChangeException.class,
+                () -> TwentyFivePiasters.plus(TenPiasters.times(2)).minus(TenPiasters.times(3)));
+        assertEquals(0.05, exception.shortfall(), 0.001);
+        assertEquals(0, exception.getStackTrace().length);
+    }
+
+    @Test
+    public void largeInsufficientChangeTest() {
+        Money drawer = FiftyDinars.times(100_000).plus(TwentyFivePiasters);
+        Money amount = FiftyDinars.times(99_999).plus(TenPiasters);
+
+        // The shortfall is only computed once asked for, hence, failing is as cheap as with tryMinus
+        assertNull(drawer.tryMinus(amount));
+        assertThrows(InsufficientChangeException.class, () -> drawer.minus(amount));
+        assertThrows(InsufficientChangeException.class, () -> new CashDrawer(drawer).dispenseChange(amount));
+    }
+
+    @Test
+    public void largeExactChangeTest() {
+        Money drawer = FiftyDinars.times(100_000).plus(TwentyFivePiasters).plus(TenPiasters.times(3));
+        Money amount = FiftyDinars.times(99_999).plus(TenPiasters.times(3));
+
+        // The dynamic program spans the residue left to the smaller banknotes, not the whole amount
+        assertEquals(FiftyDinars.plus(TwentyFivePiasters), drawer.minus(amount));
+        assertEquals(0.05, drawer.shortfall(FiftyDinars.times(99_999).plus(TenPiasters).plus(FivePiasters)), 0.001);
+
+        // Amounts beyond an int of piasters are no special case
+        Money largeDrawer = FiftyDinars.times(1_000_000).plus(TenPiasters.times(3));
+        assertEquals(0.05, largeDrawer.shortfall(FiftyDinars.times(999_999).plus(TwentyFivePiasters)), 0.001);
+        assertEquals(FiftyDinars, largeDrawer.minus(FiftyDinars.times(999_999).plus(TenPiasters.times(3))));
+    }
+
+    @Test
+    public void largeAmountsTest() {
+        DenominationSet set = DenominationSet.of("XTS", 0, 1, 3, 4, 10, 25);
+        Random random = new Random(42);
+
+        for (int trial = 0; trial < 50; trial++) {
+            int[] counts = new int[set.size()];
+            Money drawer = set.zero();
+            for (int i = 0; i < set.size(); i++) {
+                counts[i] = i == set.size() - 1 ? 3_000 + random.nextInt(2_000) : random.nextInt(8);
+                drawer = drawer.plus(set.banknote(set.denomination(i)).times(counts[i]));
+            }
+
+            long total = drawer.amountInPiasters();
+            int amount = (int) (total - random.nextInt(200));
+            int reachable = largestReachable(set, counts, amount);
+
+            Money change = set.banknote(25).times(amount / 25).plus(set.banknote(1).times(amount % 25));
+
+            assertEquals(amount - reachable, drawer.shortfall(change), 0.001);
+            Money rest = drawer.tryMinus(change);
+            if (reachable == amount) {
+                assertNotNull(rest);
+                assertEquals(total - amount, rest.amountInPiasters());
+            } else {
+                assertNull(rest);
+            }
+        }
+    }
+
+    // A plain bounded dynamic program over the whole amount
+    private static int largestReachable(DenominationSet set, int[] counts, int amount) {
+        boolean[] reachable = new boolean[amount + 1];
+        int[] used = new int[amount + 1];
+        reachable[0] = true;
+
+        for (int i = 0; i < set.size(); i++) {
+            int denomination = (int) set.denomination(i);
+            for (int a = 0; a <= amount; a++) {
+                if (reachable[a]) {
+                    used[a] = 0;
+                } else if (a >= denomination && reachable[a - denomination] && used[a - denomination] < counts[i]) {
+                    reachable[a] = true;
+                    used[a] = used[a - denomination] + 1;
+                }
+            }
+        }
+
+        int a = amount;
+        while (!reachable[a]) {
+            a--;
+        }
+
+        return a;
+    }
+
     @Test
     public void complexTest() {
         Money oneHundredsFifty = FiftyDinars.times(2)
@@ -84,6 +192,32 @@ public class MoneyTest {
         assertEquals(50.00, FiftyDinars.amount(), 2);
     }
 
+    @Test
+    public void amountInPiastersTest() {
+        assertEquals(0, Zero.amountInPiasters());
+        assertEquals(1, OnePiaster.amountInPiasters());
+        assertEquals(76, FiftyPiasters.plus(TwentyFivePiasters).plus(OnePiaster).amountInPiasters());
+        assertEquals(5_000, FiftyDinars.amountInPiasters());
+        assertEquals(10_000_000_000L, FiftyDinars.times(2_000_000).amountInPiasters());
+    }
+
+    @Test
+    public void equalityTest() {
+        assertEquals(OneDinar, FiftyPiasters.times(2));
+        assertEquals(OneDinar.hashCode(), FiftyPiasters.times(2).hashCode());
+        assertNotEquals(OneDinar, OnePiaster.times(99));
+        assertNotEquals(OneDinar, null);
+
+        assertEquals(0, OneDinar.compareTo(TenPiasters.times(10)));
+        assertTrue(OnePiaster.compareTo(FivePiasters) < 0);
+        assertTrue(FiftyDinars.compareTo(TwentyDinars.times(2)) > 0);
+
+        // Money with equal amounts, yet different banknotes, are interchangeable keys
+        Map<Money, String> prices = new HashMap<>();
+        prices.put(TwentyFivePiasters.times(2), "Soda");
+        assertEquals("Soda", prices.get(FiftyPiasters));
+    }
+
     @Test
     public void toStringTest() {
         assertEquals("0.00", Zero.toString());
@@ -115,6 +249,25 @@ public class MoneyTest {
                         .minus(TenDinars)
         );
 
+        // Tests if the 'minus' method can successfully find exact change when dispatching the largest banknote first
+        // leads to a dead end.
+        //
+        // i.e. The vending machine has 1 of twenty five piasters and 3 of ten piasters, if a change of 30 piasters is
+        // requested, can the machine return 3 of ten piasters? (since 1 of twenty five piasters leaves 5 piasters
+        // that cannot be covered)
+        assertEquals(
+                TwentyFivePiasters,
+                TwentyFivePiasters.plus(TenPiasters.times(3))
+                        .minus(TenPiasters.times(3))
+        );
+        assertEquals(
+                TwentyFivePiasters.plus(TenPiasters),
+                FiftyPiasters.plus(TwentyFivePiasters).plus(TenPiasters.times(4))
+                        .minus(FiftyPiasters.plus(TenPiasters.times(3)))
+        );
+        assertThrows(IllegalArgumentException.class,
+                () -> TwentyFivePiasters.plus(TenPiasters.times(2)).minus(TenPiasters.times(3)));
+
         // Tests if the 'minus' method can successfully substitute smaller denomination banknotes for larger ones when
         // exact change is unavailable.
         //
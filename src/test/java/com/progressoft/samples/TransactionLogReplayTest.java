@@ -0,0 +1,108 @@
+package com.progressoft.samples;
+
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.progressoft.samples.Money.*;
+import static org.junit.Assert.assertEquals;
+
+public class TransactionLogReplayTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> discrepancies = new ArrayList<>();
+
+    private final TransactionLogReplay.DiscrepancyListener listener =
+            (discrepancy, line, offset) -> discrepancies.add(discrepancy + "@" + line + ":" + offset);
+
+    @Test
+    public void replayTest() throws IOException {
+        Path log = folder.newFile().toPath();
+        Files.write(log, Arrays.asList(
+                "0.75;1.00;0.25",
+                "",
+                "0.50;0.25 0.25;",
+                "4.00;5.00;0.50 0.25 0.25"
+        ));
+
+        CashDrawer drawer = new CashDrawer(TwentyFivePiasters.plus(FiftyPiasters));
+
+        assertEquals(3, TransactionLogReplay.replay(log, drawer, listener));
+        assertEquals(OneDinar.plus(FiveDinars), drawer.toMoney());
+        assertEquals(0, discrepancies.size());
+    }
+
+    @Test
+    public void discrepanciesTest() throws IOException {
+        Path log = folder.newFile().toPath();
+        Files.write(log, Arrays.asList(
+                "0.75;1.00;0.10",
+                "0.50;1.00;0.50",
+                "0.75;1.00;0.05 0.05 0.05 0.05 0.05",
+                "0.75;3.00;0.25",
+                "0.75;1.00;0.25;",
+                "0.750;1.00;0.25",
+                "0.75;1.00"
+        ));
+
+        CashDrawer drawer = new CashDrawer(TenPiasters.plus(TwentyFivePiasters));
+
+        assertEquals(7, TransactionLogReplay.replay(log, drawer, listener));
+        assertEquals(OneDinar.times(3).plus(TwentyFivePiasters), drawer.toMoney());
+        assertEquals(Arrays.asList(
+                "MISMATCHED_AMOUNT@1:0",
+                "IMPOSSIBLE_CHANGE@2:15",
+                "NEGATIVE_COUNT@3:30",
+                "MALFORMED_RECORD@4:65",
+                "MALFORMED_RECORD@5:80",
+                "MALFORMED_RECORD@6:96",
+                "MALFORMED_RECORD@7:112"
+        ), discrepancies);
+    }
+
+    @Test
+    public void chunkBoundariesTest() throws IOException {
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < 1_000; i++) {
+            log.append(i % 2 == 0 ? "0.75;1.00;0.25\r\n" : "0.25;0.25 0.25;0.25\r\n");
+        }
+        log.append("1.00;1.00;");
+
+        CashDrawer drawer = new CashDrawer(TwentyFivePiasters);
+
+        // A buffer of 24 bytes holds about a record, which splits most records across reads
+        assertEquals(1_001, TransactionLogReplay.replay(channel(log.toString()), drawer, listener, 24));
+        assertEquals(OneDinar.times(501).plus(TwentyFivePiasters), drawer.toMoney());
+        assertEquals(0, discrepancies.size());
+    }
+
+    @Test
+    public void longLineTest() throws IOException {
+        char[] padding = new char[100];
+        Arrays.fill(padding, ' ');
+
+        String log = "0.25;0.25;" + new String(padding) + "\n0.50;0.50;\n";
+        CashDrawer drawer = new CashDrawer();
+
+        assertEquals(2, TransactionLogReplay.replay(channel(log), drawer, listener, 32));
+        assertEquals(FiftyPiasters, drawer.toMoney());
+        assertEquals(Arrays.asList("MALFORMED_RECORD@1:0"), discrepancies);
+    }
+
+    private static ReadableByteChannel channel(String log) {
+        return Channels.newChannel(new ByteArrayInputStream(log.getBytes(StandardCharsets.US_ASCII)));
+    }
+}
@@ -0,0 +1,151 @@
+package com.progressoft.samples;
+
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.progressoft.samples.Money.*;
+import static org.junit.Assert.*;
+
+public class VendingMachineTest {
+    private static final Map<String, Money> CATALOG = new HashMap<>();
+
+    static {
+        CATALOG.put("water", FiftyPiasters.plus(TwentyFivePiasters));
+        CATALOG.put("chips", OneDinar.plus(TwentyFivePiasters));
+    }
+
+    @Test
+    public void saleTest() throws Exception {
+        try (VendingMachine machine = machine(TwentyFivePiasters.times(4), 10_000)) {
+            VendingMachine.Session session = machine.open();
+
+            assertEquals(FiftyPiasters, session.insert(FiftyPiasters));
+            assertEquals(OneDinar.plus(FiftyPiasters), session.insert(OneDinar));
+            assertEquals(TwentyFivePiasters, session.select("chips"));
+
+            assertFalse(session.isOpen());
+            assertEquals(TwentyFivePiasters, session.returned().get(1, TimeUnit.SECONDS));
+            assertEquals(sum(TwentyFivePiasters.times(3), FiftyPiasters, OneDinar), machine.drawer().toMoney());
+            assertThrows(IllegalStateException.class, () -> session.insert(OneDinar));
+        }
+    }
+
+    @Test
+    public void failedSaleTest() throws Exception {
+        try (VendingMachine machine = machine(Zero, 10_000)) {
+            VendingMachine.Session session = machine.open();
+
+            assertThrows(IllegalArgumentException.class, () -> session.select("coffee"));
+            session.insert(FiftyPiasters);
+            assertThrows(IllegalStateException.class, () -> session.select("water"));
+            session.insert(FiftyPiasters);
+            assertThrows(InsufficientChangeException.class, () -> session.select("water"));
+
+            // The session stays open, and returns the exact banknotes inserted
+            assertTrue(session.isOpen());
+            Money refund = session.cancel();
+            assertEquals(2, refund.count(4));
+            assertEquals(refund, session.returned().get(1, TimeUnit.SECONDS));
+            assertEquals(Zero, machine.drawer().toMoney());
+        }
+    }
+
+    @Test
+    public void ownChangeTest() throws Exception {
+        try (VendingMachine machine = machine(Zero, 10_000)) {
+            VendingMachine.Session session = machine.open();
+
+            // The change of an empty drawer is given out of the customer's own banknotes
+            session.insert(TwentyFivePiasters.times(4));
+            assertEquals(TwentyFivePiasters, session.select("water"));
+            assertEquals(TwentyFivePiasters.times(3), machine.drawer().toMoney());
+        }
+    }
+
+    @Test
+    public void timeoutTest() throws Exception {
+        try (VendingMachine machine = machine(Zero, 100)) {
+            VendingMachine.Session session = machine.open();
+            session.insert(OneDinar);
+
+            assertEquals(OneDinar, session.returned().get(5, TimeUnit.SECONDS));
+            assertFalse(session.isOpen());
+            assertEquals(0, machine.openSessions());
+            assertThrows(IllegalStateException.class, session::cancel);
+        }
+    }
+
+    @Test
+    public void closeTest() throws Exception {
+        VendingMachine machine = machine(Zero, 10_000);
+        VendingMachine.Session session = machine.open();
+        session.insert(FiveDinars);
+
+        assertEquals(1, machine.openSessions());
+        machine.close();
+
+        assertEquals(FiveDinars, session.returned().get(1, TimeUnit.SECONDS));
+        assertEquals(0, machine.openSessions());
+        assertThrows(IllegalStateException.class, machine::open);
+    }
+
+    @Test
+    public void concurrentSessionsTest() throws Exception {
+        int sessions = 2_000;
+        Money initial = sum(FiftyPiasters.times(sessions), TwentyFivePiasters.times(sessions));
+
+        try (VendingMachine machine = machine(initial, 10_000)) {
+            ExecutorService customers = VendingMachine.newThreadPerTaskExecutor();
+            List<Future<Money>> changes = new ArrayList<>();
+
+            for (int i = 0; i < sessions; i++) {
+                changes.add(customers.submit(() -> {
+                    VendingMachine.Session session = machine.open();
+                    session.insert(OneDinar);
+                    session.insert(OneDinar);
+
+                    return session.select("chips");
+                }));
+            }
+
+            for (Future<Money> change : changes) {
+                assertEquals(0.75, change.get(10, TimeUnit.SECONDS).amount(), 0.001);
+            }
+
+            customers.shutdown();
+            assertEquals(initial.amount() + sessions * 1.25, machine.drawer().amount(), 0.001);
+        }
+    }
+
+    private static VendingMachine machine(Money drawer, long timeoutMillis) {
+        return new VendingMachine(new ConcurrentCashDrawer(drawer), CATALOG, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void threadKindTest() throws Exception {
+        // The default build targets JDK 17, hence, virtual threads are looked up, and must be found from JDK 21 on
+        boolean virtual = Runtime.version().feature() >= 21;
+        assertEquals(virtual, VendingMachine.VIRTUAL_THREADS);
+
+        ExecutorService executor = VendingMachine.newThreadPerTaskExecutor();
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get(1, TimeUnit.SECONDS);
+
+            if (virtual) {
+                assertEquals(true, Thread.class.getMethod("isVirtual").invoke(thread));
+            } else {
+                assertTrue(thread.isDaemon());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
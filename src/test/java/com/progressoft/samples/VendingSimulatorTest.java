@@ -0,0 +1,93 @@
+package com.progressoft.samples;
+
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.progressoft.samples.Money.*;
+import static org.junit.Assert.*;
+
+public class VendingSimulatorTest {
+    @Test
+    public void depletionTest() {
+        // Every sale calls for a quarter, which the drawer runs out of after ten sales
+        VendingSimulator simulator = new VendingSimulator(
+                Collections.singletonList(FiftyPiasters.plus(TwentyFivePiasters)),
+                Collections.singletonList(OneDinar),
+                VendingSimulator.CURVE_POINTS
+        );
+        VendingSimulator.Report report = simulator.simulate(TwentyFivePiasters.times(10), 8, 42);
+
+        assertEquals(8 * VendingSimulator.CURVE_POINTS, report.sessions());
+        assertEquals(8 * 10, report.failures());
+        assertEquals(0.5, report.failureRate(), 0.0001);
+
+        double[] failures = report.failureRateCurve();
+        double[] depletions = report.depletionCurve(TwentyFivePiasters);
+        for (int point = 0; point < VendingSimulator.CURVE_POINTS; point++) {
+            assertEquals(point < 10 ? 0 : 1, failures[point], 0.0001);
+            assertEquals(point < 9 ? 0 : 1, depletions[point], 0.0001);
+        }
+
+        assertArrayEquals(new double[VendingSimulator.CURVE_POINTS], report.depletionCurve(OneDinar), 0.0001);
+    }
+
+    @Test
+    public void candidatesTest() {
+        VendingSimulator simulator = new VendingSimulator(
+                Arrays.asList(TwentyFivePiasters.plus(TenPiasters), FiftyPiasters, OneDinar.plus(TwentyFivePiasters)),
+                Arrays.asList(TwentyFivePiasters, FiftyPiasters, OneDinar, OneDinar, FiveDinars),
+                1_000
+        );
+        List<Money> drawers = Arrays.asList(
+                Zero,
+                sum(FivePiasters.times(10), TenPiasters.times(10), TwentyFivePiasters.times(10), OneDinar.times(5)),
+                sum(FivePiasters.times(100), TenPiasters.times(100), TwentyFivePiasters.times(100), OneDinar.times(50))
+        );
+
+        List<VendingSimulator.Report> reports = simulator.simulate(drawers, 200, 7);
+
+        assertEquals(3, reports.size());
+        assertSame(drawers.get(1), reports.get(1).drawer());
+        assertTrue(reports.get(0).failureRate() > reports.get(1).failureRate());
+        assertTrue(reports.get(1).failureRate() > reports.get(2).failureRate());
+        assertEquals(1, reports.get(0).depletionCurve(FivePiasters)[0], 0.0001);
+    }
+
+    @Test
+    public void reproducibilityTest() {
+        VendingSimulator simulator = new VendingSimulator(
+                Arrays.asList(TwentyFivePiasters.plus(TenPiasters), OneDinar.plus(TwentyFivePiasters)),
+                Arrays.asList(FiftyPiasters, OneDinar, FiveDinars),
+                500
+        );
+        Money drawer = sum(FivePiasters.times(20), TenPiasters.times(20), TwentyFivePiasters.times(20));
+
+        VendingSimulator.Report first = simulator.simulate(drawer, 1_000, 42);
+        VendingSimulator.Report second = simulator.simulate(drawer, 1_000, 42);
+
+        assertTrue(first.failures() > 0);
+        assertEquals(first.failures(), second.failures());
+        assertArrayEquals(first.depletionCurve(TenPiasters), second.depletionCurve(TenPiasters), 0);
+        assertNotEquals(first.failures(), simulator.simulate(drawer, 1_000, 43).failures());
+    }
+
+    @Test
+    public void validationTest() {
+        List<Money> prices = Collections.singletonList(OneDinar);
+        List<Money> banknotes = Collections.singletonList(FiveDinars);
+
+        assertThrows(IllegalArgumentException.class, () -> new VendingSimulator(Collections.emptyList(), banknotes, 1));
+        assertThrows(IllegalArgumentException.class, () -> new VendingSimulator(prices, banknotes, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new VendingSimulator(prices, Collections.singletonList(OneDinar.times(2)), 1));
+
+        VendingSimulator simulator = new VendingSimulator(prices, banknotes, 1);
+        assertThrows(IllegalArgumentException.class, () -> simulator.simulate(Zero, 0, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> simulator.simulate(Zero, 1, 1).depletionCurve(OneDinar.times(2)));
+    }
+}